@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulkheads of the artifact resolution endpoints of the identity providers. Each identity provider has its own
+ * compartment which limits the number of concurrent artifact resolutions with it. A thread waits for a free slot for
+ * at most the given wait time, so that a slow identity provider cannot hold all the threads of the node.
+ */
+public class ArtifactResolutionBulkhead {
+
+    private static final Log log = LogFactory.getLog(ArtifactResolutionBulkhead.class);
+
+    private static final ArtifactResolutionBulkhead INSTANCE = new ArtifactResolutionBulkhead();
+
+    private final ConcurrentMap<String, Compartment> compartments = new ConcurrentHashMap<>();
+
+    private ArtifactResolutionBulkhead() {
+
+    }
+
+    public static ArtifactResolutionBulkhead getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Acquire a slot in the compartment of the given identity provider. The returned compartment must be released
+     * once the artifact resolution completes.
+     *
+     * @param compartmentKey     Key of the identity provider.
+     * @param maxConcurrentCalls Maximum number of concurrent artifact resolutions with the identity provider.
+     * @param maxWaitTime        Maximum time to wait for a free slot, in milliseconds.
+     * @return Compartment in which the slot was acquired.
+     * @throws ArtifactResolutionException If a slot is not freed within the wait time.
+     */
+    public Compartment acquire(String compartmentKey, int maxConcurrentCalls, long maxWaitTime)
+            throws ArtifactResolutionException {
+
+        Compartment compartment = compartments.computeIfAbsent(compartmentKey,
+                key -> new Compartment(maxConcurrentCalls));
+        compartment.resize(maxConcurrentCalls);
+
+        boolean isAcquired;
+        compartment.queuedCalls.incrementAndGet();
+        try {
+            isAcquired = compartment.semaphore.tryAcquire(maxWaitTime, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ArtifactResolutionException(ErrorMessages.ARTIFACT_RESOLUTION_BULKHEAD_FULL.getCode(),
+                    "Interrupted while waiting to resolve the artifact with: " + compartmentKey, e);
+        } finally {
+            compartment.queuedCalls.decrementAndGet();
+        }
+
+        if (!isAcquired) {
+            if (log.isDebugEnabled()) {
+                log.debug("Rejected the artifact resolution with: " + compartmentKey + " as " + maxConcurrentCalls +
+                        " artifact resolutions are in progress.");
+            }
+            throw new ArtifactResolutionException(ErrorMessages.ARTIFACT_RESOLUTION_BULKHEAD_FULL.getCode(),
+                    ErrorMessages.ARTIFACT_RESOLUTION_BULKHEAD_FULL.getMessage());
+        }
+        compartment.activeCalls.incrementAndGet();
+        return compartment;
+    }
+
+    /**
+     * Get the number of artifact resolutions in progress with the given identity provider.
+     *
+     * @param compartmentKey Key of the identity provider.
+     * @return Number of active artifact resolutions.
+     */
+    public int getActiveCalls(String compartmentKey) {
+
+        Compartment compartment = compartments.get(compartmentKey);
+        return compartment != null ? compartment.activeCalls.get() : 0;
+    }
+
+    /**
+     * Get the number of artifact resolutions waiting for a free slot of the given identity provider.
+     *
+     * @param compartmentKey Key of the identity provider.
+     * @return Number of queued artifact resolutions.
+     */
+    public int getQueuedCalls(String compartmentKey) {
+
+        Compartment compartment = compartments.get(compartmentKey);
+        return compartment != null ? compartment.queuedCalls.get() : 0;
+    }
+
+    /**
+     * Get the statistics of the compartments of all the identity providers.
+     *
+     * @return Map of the key of the identity provider to the statistics of its compartment.
+     */
+    public Map<String, Statistics> getStatistics() {
+
+        Map<String, Statistics> statistics = new HashMap<>();
+        compartments.forEach((key, compartment) -> statistics.put(key, new Statistics(
+                compartment.getMaxConcurrentCalls(), compartment.activeCalls.get(), compartment.queuedCalls.get())));
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Remove all the compartments.
+     */
+    public void reset() {
+
+        compartments.clear();
+    }
+
+    /**
+     * Compartment of an identity provider.
+     */
+    public static class Compartment {
+
+        private final ResizableSemaphore semaphore;
+        private final AtomicInteger activeCalls = new AtomicInteger();
+        private final AtomicInteger queuedCalls = new AtomicInteger();
+        private int maxConcurrentCalls;
+
+        private Compartment(int maxConcurrentCalls) {
+
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            this.semaphore = new ResizableSemaphore(maxConcurrentCalls);
+        }
+
+        /**
+         * Change the number of slots of the compartment, without dropping the calls in progress. When the number of
+         * slots is reduced, new calls wait until the calls in progress are within the new limit.
+         */
+        private synchronized void resize(int newMaxConcurrentCalls) {
+
+            int delta = newMaxConcurrentCalls - maxConcurrentCalls;
+            if (delta == 0) {
+                return;
+            }
+            if (delta > 0) {
+                semaphore.release(delta);
+            } else {
+                semaphore.reducePermits(-delta);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Changed the maximum concurrent artifact resolutions from " + maxConcurrentCalls + " to " +
+                        newMaxConcurrentCalls + ".");
+            }
+            maxConcurrentCalls = newMaxConcurrentCalls;
+        }
+
+        private synchronized int getMaxConcurrentCalls() {
+
+            return maxConcurrentCalls;
+        }
+
+        /**
+         * Release the slot acquired in this compartment.
+         */
+        public void release() {
+
+            activeCalls.decrementAndGet();
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Statistics of the compartment of an identity provider.
+     */
+    public static final class Statistics {
+
+        private final int maxConcurrentCalls;
+        private final int activeCalls;
+        private final int queuedCalls;
+
+        private Statistics(int maxConcurrentCalls, int activeCalls, int queuedCalls) {
+
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            this.activeCalls = activeCalls;
+            this.queuedCalls = queuedCalls;
+        }
+
+        /**
+         * Get the maximum number of concurrent artifact resolutions with the identity provider.
+         *
+         * @return Maximum number of concurrent artifact resolutions.
+         */
+        public int getMaxConcurrentCalls() {
+
+            return maxConcurrentCalls;
+        }
+
+        /**
+         * Get the number of artifact resolutions in progress with the identity provider.
+         *
+         * @return Number of active artifact resolutions.
+         */
+        public int getActiveCalls() {
+
+            return activeCalls;
+        }
+
+        /**
+         * Get the number of artifact resolutions waiting for a free slot of the identity provider.
+         *
+         * @return Number of queued artifact resolutions.
+         */
+        public int getQueuedCalls() {
+
+            return queuedCalls;
+        }
+    }
+
+    /**
+     * Fair semaphore whose number of permits can be reduced while permits are held.
+     */
+    private static class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+
+            super.reducePermits(reduction);
+        }
+    }
+}
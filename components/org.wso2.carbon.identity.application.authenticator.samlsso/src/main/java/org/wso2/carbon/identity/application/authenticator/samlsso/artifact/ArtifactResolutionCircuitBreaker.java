@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breakers of the artifact resolution endpoints of the identity providers. The circuit of an identity
+ * provider is opened when the configured number of consecutive artifact resolutions fail or are slower than the
+ * configured latency threshold. While the circuit is open, artifact resolutions fail fast without calling the
+ * identity provider. Once the configured open duration has elapsed, a single artifact resolution is let through as a
+ * probe. The circuit is closed if the probe succeeds, and is opened again otherwise.
+ */
+public class ArtifactResolutionCircuitBreaker {
+
+    private static final Log log = LogFactory.getLog(ArtifactResolutionCircuitBreaker.class);
+
+    private static final long DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final long DEFAULT_SLOW_CALL_THRESHOLD = 10000;
+    private static final long DEFAULT_OPEN_DURATION = 30;
+
+    private static final ArtifactResolutionCircuitBreaker INSTANCE = new ArtifactResolutionCircuitBreaker();
+
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * State of a circuit.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private ArtifactResolutionCircuitBreaker() {
+
+    }
+
+    public static ArtifactResolutionCircuitBreaker getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Check whether an artifact resolution is allowed through the circuit of the given identity provider.
+     *
+     * @param circuitKey Key of the identity provider.
+     * @return Whether the artifact resolution is the probe of a half-open circuit.
+     * @throws ArtifactResolutionException If the circuit is open.
+     */
+    public boolean acquire(String circuitKey) throws ArtifactResolutionException {
+
+        Circuit circuit = circuits.computeIfAbsent(circuitKey, key -> new Circuit());
+        State state = circuit.tryAcquire(System.nanoTime(), getOpenDuration());
+        if (state == State.OPEN) {
+            if (log.isDebugEnabled()) {
+                log.debug("Circuit of the artifact resolution endpoint of: " + circuitKey + " is open.");
+            }
+            throw new ArtifactResolutionException(ErrorMessages.ARTIFACT_RESOLUTION_CIRCUIT_OPEN.getCode(),
+                    ErrorMessages.ARTIFACT_RESOLUTION_CIRCUIT_OPEN.getMessage());
+        }
+        return state == State.HALF_OPEN;
+    }
+
+    /**
+     * Release the probe of a half-open circuit which was aborted before it completed, without changing the state of
+     * the circuit. The next artifact resolution is let through as the probe.
+     *
+     * @param circuitKey Key of the identity provider.
+     */
+    public void releaseProbe(String circuitKey) {
+
+        Circuit circuit = circuits.get(circuitKey);
+        if (circuit != null) {
+            circuit.onProbeAborted();
+        }
+    }
+
+    /**
+     * Record a completed artifact resolution. A resolution slower than the latency threshold is recorded as a
+     * failure.
+     *
+     * @param circuitKey Key of the identity provider.
+     * @param latency    Time taken for the artifact resolution, in milliseconds.
+     */
+    public void recordSuccess(String circuitKey, long latency) {
+
+        long slowCallThreshold = SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD,
+                DEFAULT_SLOW_CALL_THRESHOLD);
+        if (slowCallThreshold > 0 && latency > slowCallThreshold) {
+            if (log.isDebugEnabled()) {
+                log.debug("Artifact resolution with: " + circuitKey + " took " + latency + " ms, which exceeds the " +
+                        "latency threshold of the circuit breaker.");
+            }
+            recordFailure(circuitKey);
+            return;
+        }
+        Circuit circuit = circuits.get(circuitKey);
+        if (circuit != null) {
+            circuit.onSuccess();
+        }
+    }
+
+    /**
+     * Record a failed artifact resolution.
+     *
+     * @param circuitKey Key of the identity provider.
+     */
+    public void recordFailure(String circuitKey) {
+
+        Circuit circuit = circuits.computeIfAbsent(circuitKey, key -> new Circuit());
+        long failureThreshold = SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                DEFAULT_FAILURE_THRESHOLD);
+        if (circuit.onFailure(System.nanoTime(), failureThreshold)) {
+            log.warn("Opened the circuit of the artifact resolution endpoint of: " + circuitKey + ". Artifact " +
+                    "resolutions will fail fast for " + getOpenDuration() / 1000 + " seconds.");
+        }
+    }
+
+    /**
+     * Get the state of the circuit of the given identity provider.
+     *
+     * @param circuitKey Key of the identity provider.
+     * @return State of the circuit.
+     */
+    public State getState(String circuitKey) {
+
+        Circuit circuit = circuits.get(circuitKey);
+        return circuit != null ? circuit.getState() : State.CLOSED;
+    }
+
+    /**
+     * Close all the circuits.
+     */
+    public void reset() {
+
+        circuits.clear();
+    }
+
+    private long getOpenDuration() {
+
+        return TimeUnit.SECONDS.toMillis(SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_CIRCUIT_BREAKER_OPEN_DURATION, DEFAULT_OPEN_DURATION));
+    }
+
+    private static class Circuit {
+
+        private State state = State.CLOSED;
+        private long consecutiveFailures;
+        private long openedTime;
+        private boolean probeInProgress;
+
+        /**
+         * Try to let a resolution through, and return OPEN if it is rejected, HALF_OPEN if it is let through as the
+         * probe, or CLOSED otherwise.
+         */
+        synchronized State tryAcquire(long now, long openDuration) {
+
+            switch (state) {
+                case OPEN:
+                    if (TimeUnit.NANOSECONDS.toMillis(now - openedTime) < openDuration) {
+                        return State.OPEN;
+                    }
+                    state = State.HALF_OPEN;
+                    probeInProgress = true;
+                    return State.HALF_OPEN;
+                case HALF_OPEN:
+                    if (probeInProgress) {
+                        return State.OPEN;
+                    }
+                    probeInProgress = true;
+                    return State.HALF_OPEN;
+                default:
+                    return State.CLOSED;
+            }
+        }
+
+        synchronized void onProbeAborted() {
+
+            if (state == State.HALF_OPEN) {
+                probeInProgress = false;
+            }
+        }
+
+        synchronized void onSuccess() {
+
+            if (state == State.OPEN) {
+                // A resolution which started before the circuit was opened does not close it.
+                return;
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInProgress = false;
+        }
+
+        /**
+         * Record a failure and return whether the circuit was opened by it.
+         */
+        synchronized boolean onFailure(long now, long failureThreshold) {
+
+            probeInProgress = false;
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedTime = now;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized State getState() {
+
+            return state;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pool which runs the asynchronous artifact resolutions, so that the container threads are not held
+ * while waiting for the identity provider. Both the number of threads and the number of queued resolutions are
+ * limited. A resolution submitted while the pool is saturated is rejected instead of queuing up without a bound.
+ */
+public class ArtifactResolutionExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "SAMLArtifactResolution-";
+    private static final int DEFAULT_THREAD_POOL_SIZE = 20;
+    private static final int DEFAULT_QUEUE_SIZE = 100;
+    private static final long KEEP_ALIVE_TIME = 60;
+
+    private static final ArtifactResolutionExecutor INSTANCE = new ArtifactResolutionExecutor();
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private ThreadPoolExecutor executorService;
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private ArtifactResolutionExecutor() {
+
+    }
+
+    public static ArtifactResolutionExecutor getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the executor service which runs the asynchronous artifact resolutions.
+     *
+     * @return Executor service.
+     */
+    public synchronized ExecutorService getExecutorService() {
+
+        if (executorService == null) {
+            int threadPoolSize = (int) Math.max(1, SSOUtils.getAuthenticatorConfigParameter(
+                    SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_THREAD_POOL_SIZE, DEFAULT_THREAD_POOL_SIZE));
+            int queueSize = (int) Math.max(1, SSOUtils.getAuthenticatorConfigParameter(
+                    SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+            executorService = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, KEEP_ALIVE_TIME,
+                    TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), runnable -> {
+                        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+            executorService.allowCoreThreadTimeOut(true);
+        }
+        return executorService;
+    }
+
+    /**
+     * Get the scheduler which triggers the delayed steps of the artifact resolutions, such as hedged requests. The
+     * scheduled tasks should only hand over work to {@link #getExecutorService()}.
+     *
+     * @return Scheduler.
+     */
+    public synchronized ScheduledExecutorService getScheduler() {
+
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + "Scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Stop the threads which run the asynchronous artifact resolutions.
+     */
+    public synchronized void shutdown() {
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (executorService != null) {
+            executorService.shutdownNow();
+            executorService = null;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * Shared HTTP client used to send artifact resolve requests to the identity providers. Connections are pooled and
+ * kept alive between requests, and the number of connections to each artifact resolution endpoint is limited.
+ * Since the client is built on the cached SSLContext, TLS sessions are resumed when new connections are opened to the
+ * same endpoint. Connections which have expired or have been idle for too long are closed in the background.
+ * <p>
+ * The client is rebuilt when the SSLContext changes and is shut down when the bundle is deactivated. Requests only
+ * read the current client, so a lock is taken only while the client is being rebuilt.
+ */
+public class ArtifactResolutionHttpClient {
+
+    private static final Log log = LogFactory.getLog(ArtifactResolutionHttpClient.class);
+
+    private static final String EVICTOR_THREAD_NAME = "SAMLArtifactResolutionConnectionEvictor";
+    private static final String HTTP = "http";
+    private static final String HTTPS = "https";
+    private static final int HTTP_DEFAULT_PORT = 80;
+    private static final int HTTPS_DEFAULT_PORT = 443;
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 100;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final long DEFAULT_KEEP_ALIVE_TIMEOUT = 60;
+    private static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 30;
+    private static final long RETIRED_CLIENT_CLOSE_DELAY = 60;
+
+    private static final ArtifactResolutionHttpClient INSTANCE = new ArtifactResolutionHttpClient();
+
+    private final Object lock = new Object();
+    private volatile PooledClient pooledClient;
+    private ScheduledExecutorService evictor;
+
+    private ArtifactResolutionHttpClient() {
+
+    }
+
+    public static ArtifactResolutionHttpClient getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the HTTP client to send an artifact resolve request to the given URL.
+     *
+     * @param sslContext     SSLContext to be used for TLS connections, or null to use the default SSLContext.
+     * @param url            Artifact resolution URL of the identity provider.
+     * @param proxy          Proxy configured in carbon.xml, or null if not configured.
+     * @param maxConnections Maximum number of connections to the artifact resolution endpoint.
+     * @return Pooled HTTP client.
+     */
+    public CloseableHttpClient getHttpClient(SSLContext sslContext, String url, HttpHost proxy, int maxConnections) {
+
+        PooledClient currentClient = pooledClient;
+        if (currentClient == null || currentClient.sslContext != sslContext) {
+            currentClient = getPooledClient(sslContext);
+        }
+        currentClient.setMaxConnections(url, proxy, maxConnections);
+        return currentClient.httpClient;
+    }
+
+    /**
+     * Get the maximum number of connections to an artifact resolution endpoint, which is used when it is not
+     * configured for the identity provider.
+     *
+     * @return Default maximum number of connections per artifact resolution endpoint.
+     */
+    public int getDefaultMaxConnectionsPerRoute() {
+
+        return (int) SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_MAX_CONNECTIONS_PER_ROUTE,
+                DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /**
+     * Close the pooled connections and stop the background eviction of connections.
+     */
+    public void shutdown() {
+
+        synchronized (lock) {
+            if (evictor != null) {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+            if (pooledClient != null) {
+                close(pooledClient.httpClient);
+                pooledClient = null;
+            }
+        }
+    }
+
+    private PooledClient getPooledClient(SSLContext sslContext) {
+
+        synchronized (lock) {
+            PooledClient currentClient = pooledClient;
+            if (currentClient == null || currentClient.sslContext != sslContext) {
+                currentClient = buildHttpClient(sslContext);
+            }
+            return currentClient;
+        }
+    }
+
+    private PooledClient buildHttpClient(SSLContext sslContext) {
+
+        SSLConnectionSocketFactory sslSocketFactory = sslContext != null ? new SSLConnectionSocketFactory(sslContext) :
+                SSLConnectionSocketFactory.getSocketFactory();
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register(HTTP, PlainConnectionSocketFactory.getSocketFactory())
+                .register(HTTPS, sslSocketFactory)
+                .build();
+
+        PoolingHttpClientConnectionManager newConnectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        newConnectionManager.setMaxTotal((int) SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS));
+        newConnectionManager.setDefaultMaxPerRoute(getDefaultMaxConnectionsPerRoute());
+
+        long keepAliveTimeout = TimeUnit.SECONDS.toMillis(SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_KEEP_ALIVE_TIMEOUT, DEFAULT_KEEP_ALIVE_TIMEOUT));
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAliveDuration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response,
+                    context);
+            return keepAliveDuration > 0 ? keepAliveDuration : keepAliveTimeout;
+        };
+
+        // Connection state is disabled so that connections authenticated with the client certificate of the server
+        // are reused across requests.
+        CloseableHttpClient newHttpClient = HttpClients.custom()
+                .setConnectionManager(newConnectionManager)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .disableConnectionState()
+                .build();
+
+        if (pooledClient != null) {
+            retire(pooledClient.httpClient);
+        }
+        if (evictor == null) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, EVICTOR_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long idleConnectionTimeout = SSOUtils.getAuthenticatorConfigParameter(
+                    SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_IDLE_CONNECTION_TIMEOUT,
+                    DEFAULT_IDLE_CONNECTION_TIMEOUT);
+            long evictionInterval = Math.max(1, idleConnectionTimeout / 2);
+            evictor.scheduleWithFixedDelay(() -> evictConnections(idleConnectionTimeout), evictionInterval,
+                    evictionInterval, TimeUnit.SECONDS);
+        }
+
+        pooledClient = new PooledClient(sslContext, newHttpClient, newConnectionManager);
+        if (log.isDebugEnabled()) {
+            log.debug("Created the pooled HTTP client for artifact resolution.");
+        }
+        return pooledClient;
+    }
+
+    private void evictConnections(long idleConnectionTimeout) {
+
+        PooledClient currentClient = pooledClient;
+        if (currentClient != null) {
+            currentClient.connectionManager.closeExpiredConnections();
+            currentClient.connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Close a replaced client once the requests which are already using it are expected to be completed.
+     */
+    private void retire(CloseableHttpClient retiredHttpClient) {
+
+        if (evictor != null) {
+            evictor.schedule(() -> close(retiredHttpClient), RETIRED_CLIENT_CLOSE_DELAY, TimeUnit.SECONDS);
+        } else {
+            close(retiredHttpClient);
+        }
+    }
+
+    private void close(CloseableHttpClient closeableHttpClient) {
+
+        try {
+            closeableHttpClient.close();
+        } catch (IOException e) {
+            log.warn("Error while closing the HTTP client used for artifact resolution.", e);
+        }
+    }
+
+    /**
+     * HTTP client together with its connection manager and the SSLContext it was built on. A new instance is created
+     * when the client is rebuilt, so requests always see a consistent client and connection manager.
+     */
+    private static final class PooledClient {
+
+        private final SSLContext sslContext;
+        private final CloseableHttpClient httpClient;
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final ConcurrentMap<HttpRoute, Integer> routes = new ConcurrentHashMap<>();
+
+        private PooledClient(SSLContext sslContext, CloseableHttpClient httpClient,
+                             PoolingHttpClientConnectionManager connectionManager) {
+
+            this.sslContext = sslContext;
+            this.httpClient = httpClient;
+            this.connectionManager = connectionManager;
+        }
+
+        /**
+         * Set the connection limit of the route to the given URL when the route is first seen or when the limit
+         * configured for it changes.
+         */
+        private void setMaxConnections(String url, HttpHost proxy, int maxConnections) {
+
+            URI uri;
+            try {
+                uri = URI.create(url);
+            } catch (IllegalArgumentException e) {
+                // Let the request fail with the usual error.
+                return;
+            }
+            if (uri.getHost() == null) {
+                return;
+            }
+            boolean secure = HTTPS.equalsIgnoreCase(uri.getScheme());
+            int port = uri.getPort() > 0 ? uri.getPort() : (secure ? HTTPS_DEFAULT_PORT : HTTP_DEFAULT_PORT);
+            HttpHost target = new HttpHost(uri.getHost(), port, uri.getScheme());
+            HttpRoute route = proxy != null ? new HttpRoute(target, null, proxy, secure) :
+                    new HttpRoute(target, null, secure);
+            Integer currentMaxConnections = routes.get(route);
+            if (currentMaxConnections != null && currentMaxConnections == maxConnections) {
+                return;
+            }
+            currentMaxConnections = routes.put(route, maxConnections);
+            if (currentMaxConnections == null || currentMaxConnections != maxConnections) {
+                connectionManager.setMaxPerRoute(route, maxConnections);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracker of the latencies of the recent successful artifact resolutions with each identity provider. The latencies
+ * are used to decide how long to wait for an artifact resolve endpoint before sending a hedged request to the next
+ * endpoint of the identity provider.
+ */
+public class ArtifactResolutionLatencyTracker {
+
+    static final int WINDOW_SIZE = 100;
+    static final int MIN_SAMPLES = 20;
+
+    private static final ArtifactResolutionLatencyTracker INSTANCE = new ArtifactResolutionLatencyTracker();
+
+    private final ConcurrentMap<String, LatencyWindow> latencyWindows = new ConcurrentHashMap<>();
+
+    private ArtifactResolutionLatencyTracker() {
+
+    }
+
+    public static ArtifactResolutionLatencyTracker getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Record the latency of a successful artifact resolution.
+     *
+     * @param key     Key of the identity provider.
+     * @param latency Time taken for the artifact resolution, in milliseconds.
+     */
+    public void recordLatency(String key, long latency) {
+
+        latencyWindows.computeIfAbsent(key, k -> new LatencyWindow()).add(latency);
+    }
+
+    /**
+     * Get the given percentile of the recent latencies of the identity provider.
+     *
+     * @param key        Key of the identity provider.
+     * @param percentile Percentile, between 0 and 100.
+     * @return Latency in milliseconds, or -1 if not enough artifact resolutions were recorded yet.
+     */
+    public long getPercentile(String key, double percentile) {
+
+        LatencyWindow latencyWindow = latencyWindows.get(key);
+        return latencyWindow != null ? latencyWindow.getPercentile(percentile) : -1;
+    }
+
+    /**
+     * Discard all the recorded latencies.
+     */
+    public void reset() {
+
+        latencyWindows.clear();
+    }
+
+    private static class LatencyWindow {
+
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+
+        synchronized void add(long latency) {
+
+            latencies[next] = latency;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+        }
+
+        long getPercentile(double percentile) {
+
+            long[] sortedLatencies;
+            synchronized (this) {
+                if (count < MIN_SAMPLES) {
+                    return -1;
+                }
+                sortedLatencies = Arrays.copyOf(latencies, count);
+            }
+            Arrays.sort(sortedLatencies);
+            int index = (int) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)];
+        }
+    }
+}
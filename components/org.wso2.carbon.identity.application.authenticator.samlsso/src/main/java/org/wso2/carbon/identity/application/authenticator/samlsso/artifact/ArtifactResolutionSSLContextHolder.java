@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.ServerConfiguration;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+
+import java.io.File;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+/**
+ * Holder of the SSLContext used to send artifact resolve requests. The SSLContext is built from the server keystore
+ * configured in carbon.xml once and reused across requests. It is rebuilt only when the keystore configuration or the
+ * last modified time or size of the keystore file changes.
+ */
+public class ArtifactResolutionSSLContextHolder {
+
+    private static final Log log = LogFactory.getLog(ArtifactResolutionSSLContextHolder.class);
+
+    private static final ArtifactResolutionSSLContextHolder INSTANCE = new ArtifactResolutionSSLContextHolder();
+
+    private volatile CachedSSLContext cachedSSLContext;
+
+    private ArtifactResolutionSSLContextHolder() {
+
+    }
+
+    public static ArtifactResolutionSSLContextHolder getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the SSLContext built from the keystore configured in carbon.xml.
+     *
+     * @param serverConfig ServerConfiguration object that contains properties configured in carbon.xml.
+     * @return SSLContext or null if the server configuration or the keystore is not available.
+     * @throws GeneralSecurityException If the SSLContext cannot be created.
+     */
+    public SSLContext getSSLContext(ServerConfiguration serverConfig) throws GeneralSecurityException {
+
+        if (serverConfig == null) {
+            return null;
+        }
+
+        String keyStorePath = serverConfig.getFirstProperty(SSOConstants.SECURITY_KEYSTORE_LOCATION);
+        String keyStorePassword = serverConfig.getFirstProperty(SSOConstants.ServerConfig.KEY_PASSWORD);
+        String keyStoreType = serverConfig.getFirstProperty(SSOConstants.SECURITY_KEYSTORE_TYPE);
+        if (StringUtils.isBlank(keyStorePath)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Keystore is not configured. The default SSL context will be used for artifact resolution.");
+            }
+            return null;
+        }
+        List<Object> version = getVersion(keyStorePath, keyStorePassword, keyStoreType);
+
+        CachedSSLContext currentSSLContext = cachedSSLContext;
+        if (currentSSLContext != null && currentSSLContext.version.equals(version)) {
+            return currentSSLContext.sslContext;
+        }
+
+        synchronized (this) {
+            currentSSLContext = cachedSSLContext;
+            if (currentSSLContext == null || !currentSSLContext.version.equals(version)) {
+                currentSSLContext = new CachedSSLContext(version,
+                        buildSSLContext(keyStorePath, keyStorePassword, keyStoreType));
+                cachedSSLContext = currentSSLContext;
+            }
+            return currentSSLContext.sslContext;
+        }
+    }
+
+    /**
+     * Discard the cached SSLContext, so that it is rebuilt on the next request.
+     */
+    public void invalidate() {
+
+        cachedSSLContext = null;
+    }
+
+    private SSLContext buildSSLContext(String keyStorePath, String keyStorePassword, String keyStoreType)
+            throws GeneralSecurityException {
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance("SunX509");
+        KeyStore keyStore = SSOUtils.loadKeyStoreFromFileSystem(keyStorePath, keyStorePassword, keyStoreType);
+        keyManagerFactory.init(keyStore, keyStorePassword.toCharArray());
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Created SSL Context using keystore: " + keyStorePath);
+        }
+        return sslContext;
+    }
+
+    private List<Object> getVersion(String keyStorePath, String keyStorePassword, String keyStoreType) {
+
+        File keyStoreFile = new File(keyStorePath);
+        return Arrays.asList(keyStorePath, keyStorePassword, keyStoreType, keyStoreFile.lastModified(),
+                keyStoreFile.length());
+    }
+
+    private static class CachedSSLContext {
+
+        private final List<Object> version;
+        private final SSLContext sslContext;
+
+        private CachedSSLContext(List<Object> version, SSLContext sslContext) {
+
+            this.version = version;
+            this.sslContext = sslContext;
+        }
+    }
+}
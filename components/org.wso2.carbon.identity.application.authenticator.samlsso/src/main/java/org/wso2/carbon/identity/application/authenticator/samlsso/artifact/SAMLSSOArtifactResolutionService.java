@@ -18,16 +18,17 @@
 
 package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
 
+import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpHost;
 import org.joda.time.DateTime;
+import org.opensaml.core.xml.XMLObject;
 import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
 import org.opensaml.saml.common.SAMLObject;
 import org.opensaml.saml.common.SAMLObjectBuilder;
 import org.opensaml.saml.common.SAMLVersion;
-import org.opensaml.saml.common.xml.SAMLConstants;
 import org.opensaml.saml.saml2.core.Artifact;
 import org.opensaml.saml.saml2.core.ArtifactResolve;
 import org.opensaml.saml.saml2.core.ArtifactResponse;
@@ -38,28 +39,30 @@ import org.opensaml.soap.soap11.Envelope;
 import org.opensaml.core.xml.XMLObjectBuilderFactory;
 import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
 import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
-import org.wso2.carbon.identity.application.authenticator.samlsso.manager.X509CredentialImpl;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.X509CredentialCache;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import javax.xml.soap.MessageFactory;
-import javax.xml.soap.MimeHeaders;
-import javax.xml.soap.SOAPBody;
-import javax.xml.soap.SOAPBodyElement;
-import javax.xml.soap.SOAPException;
-import javax.xml.soap.SOAPMessage;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import javax.xml.namespace.QName;
 
 /**
  * This class is used for handling SAML Artifact Binding
@@ -67,6 +70,15 @@ import javax.xml.transform.stream.StreamResult;
 public class SAMLSSOArtifactResolutionService {
 
     private static final Log log = LogFactory.getLog(SAMLSSOArtifactResolutionService.class);
+    private static final int ARTIFACT_LENGTH = 44;
+    private static final byte ARTIFACT_TYPE_CODE = 4;
+    private static final int SOURCE_ID_OFFSET = 4;
+    private static final int SOURCE_ID_LENGTH = 20;
+    private static final String SOURCE_ID_ALGORITHM = "SHA-1";
+    private static final long DEFAULT_MAX_CONCURRENT_CALLS = 20;
+    private static final long DEFAULT_MAX_WAIT_TIME = 1000;
+    private static final long DEFAULT_HEDGING_PERCENTILE = 95;
+    private static final long DEFAULT_HEDGING_DELAY = 1000;
 
     private Map<String, String> authenticatorProperties;
     private String tenantDomain;
@@ -86,10 +98,108 @@ public class SAMLSSOArtifactResolutionService {
     public ArtifactResponse getSAMLArtifactResponse(String samlArtReceived) throws ArtifactResolutionException {
 
         validateArtifactResolveConfig();
+        routeArtifact(samlArtReceived);
         ArtifactResolve artifactResolve = generateArtifactResolveReq(samlArtReceived);
         return sendArtifactResolveRequest(artifactResolve);
     }
 
+    /**
+     * Asynchronous variant of {@link #getSAMLArtifactResponse(String)}. Building and signing the artifact resolve
+     * request, sending it to the Artifact Resolve Endpoint and validating the artifact response run on the artifact
+     * resolution thread pool, so that the calling thread is not blocked.
+     * The returned future is completed exceptionally with an ArtifactResolutionException if the resolution fails,
+     * or if the artifact resolution thread pool is saturated.
+     *
+     * @param samlArtReceived SAML Artifact reference needed to get the actual data
+     * @return Future of the ArtifactResponse
+     */
+    public CompletableFuture<ArtifactResponse> getSAMLArtifactResponseAsync(String samlArtReceived) {
+
+        ExecutorService executorService = ArtifactResolutionExecutor.getInstance().getExecutorService();
+        CompletableFuture<ArtifactResolve> artifactResolveFuture;
+        try {
+            artifactResolveFuture = CompletableFuture.supplyAsync(() -> {
+                try {
+                    validateArtifactResolveConfig();
+                    routeArtifact(samlArtReceived);
+                    return generateArtifactResolveReq(samlArtReceived);
+                } catch (ArtifactResolutionException e) {
+                    throw new CompletionException(e);
+                }
+            }, executorService);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<ArtifactResponse> rejectedFuture = new CompletableFuture<>();
+            rejectedFuture.completeExceptionally(new ArtifactResolutionException("Artifact resolution thread pool " +
+                    "is saturated. Rejected the artifact resolution.", e));
+            return rejectedFuture;
+        }
+
+        return artifactResolveFuture.thenCompose(unchecked(this::resolveArtifact));
+    }
+
+    /**
+     * Send the artifact resolve request and validate the artifact response. This runs on the artifact resolution
+     * thread pool, after the artifact resolve request is built.
+     */
+    private CompletableFuture<ArtifactResponse> resolveArtifact(ArtifactResolve artifactResolve)
+            throws ArtifactResolutionException {
+
+        String envelopeElement = buildArtifactResolveMessage(artifactResolve);
+        List<String> artifactResolveUrls = getArtifactResolveUrls();
+        if (artifactResolveUrls.size() > 1) {
+            return new HedgedArtifactResolution(artifactResolve, envelopeElement, artifactResolveUrls).start();
+        }
+        XMLObject soapMessage = sendArtifactResolveMessage(envelopeElement);
+        return CompletableFuture.completedFuture(processArtifactResponse(artifactResolve, soapMessage));
+    }
+
+    /**
+     * Decode the received type 0x0004 artifact and check that it was issued by the identity provider, by comparing the
+     * SourceID of the artifact with the SHA-1 hash of the entity ID of the identity provider. Artifacts which are
+     * malformed or were not issued by the identity provider are rejected here, without calling any artifact resolve
+     * endpoint.
+     *
+     * @param samlArtReceived SAML Artifact reference needed to get the actual data
+     * @throws ArtifactResolutionException If the artifact is malformed or has an unknown SourceID.
+     */
+    private void routeArtifact(String samlArtReceived) throws ArtifactResolutionException {
+
+        byte[] artifact = Base64.decodeBase64(samlArtReceived);
+        if (artifact == null || artifact.length != ARTIFACT_LENGTH || artifact[0] != 0 ||
+                artifact[1] != ARTIFACT_TYPE_CODE) {
+            throw new ArtifactResolutionException(ErrorMessages.INVALID_SAML_ARTIFACT.getCode(),
+                    ErrorMessages.INVALID_SAML_ARTIFACT.getMessage());
+        }
+
+        String idpEntityId = authenticatorProperties.get(IdentityApplicationConstants.Authenticator.SAML2SSO
+                .IDP_ENTITY_ID);
+        if (StringUtils.isBlank(idpEntityId)) {
+            log.warn("IdP entity ID is not configured for the artifact resolution in tenant: " + tenantDomain +
+                    ". SourceID of the received artifact is not verified.");
+            return;
+        }
+
+        byte[] sourceId = Arrays.copyOfRange(artifact, SOURCE_ID_OFFSET, SOURCE_ID_OFFSET + SOURCE_ID_LENGTH);
+        if (!MessageDigest.isEqual(sourceId, getSourceId(idpEntityId))) {
+            throw new ArtifactResolutionException(ErrorMessages.UNKNOWN_SAML_ARTIFACT_SOURCE_ID.getCode(),
+                    ErrorMessages.UNKNOWN_SAML_ARTIFACT_SOURCE_ID.getMessage() + " Expected issuer: " + idpEntityId);
+        }
+    }
+
+    private static byte[] getSourceId(String entityId) throws ArtifactResolutionException {
+
+        try {
+            return MessageDigest.getInstance(SOURCE_ID_ALGORITHM).digest(entityId.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ArtifactResolutionException(SOURCE_ID_ALGORITHM + " is not supported by the JVM.", e);
+        }
+    }
+
+    private List<String> getArtifactResolveUrls() {
+
+        return SSOUtils.getArtifactResolveUrls(authenticatorProperties);
+    }
+
     /**
      * Create SAML ArtifactResolve Object and sign
      *
@@ -109,7 +219,11 @@ public class SAMLSSOArtifactResolutionService {
     }
 
     /**
-     * Send Artifact Resolve Request to Artifact Resolution Service
+     * Send Artifact Resolve Request to Artifact Resolution Service. If several artifact resolve endpoints are
+     * configured, a hedged request is sent to the next endpoint whenever the current endpoints have not answered
+     * within the usual latency of the identity provider, and the first valid artifact response is used. The first
+     * request is sent on the calling thread, and the calling thread is held for at most the request timeout of the
+     * identity provider for each endpoint, counted from the first request.
      *
      * @param artifactResolve Artifact Resolve Request
      * @return ArtifactResponse
@@ -118,8 +232,25 @@ public class SAMLSSOArtifactResolutionService {
     public ArtifactResponse sendArtifactResolveRequest(ArtifactResolve artifactResolve)
             throws ArtifactResolutionException {
 
-        SAMLSSOSoapMessageService soapMessageService = new SAMLSSOSoapMessageService();
-        Envelope envelope = soapMessageService.buildSOAPMessage(artifactResolve);
+        String envelopeElement = buildArtifactResolveMessage(artifactResolve);
+        List<String> artifactResolveUrls = getArtifactResolveUrls();
+        if (artifactResolveUrls.size() > 1) {
+            return new HedgedArtifactResolution(artifactResolve, envelopeElement, artifactResolveUrls).resolve();
+        }
+        XMLObject soapMessage = sendArtifactResolveMessage(envelopeElement);
+        return processArtifactResponse(artifactResolve, soapMessage);
+    }
+
+    /**
+     * Wrap the artifact resolve request into a SOAP message.
+     *
+     * @param artifactResolve Artifact Resolve Request
+     * @return SOAP message with the artifact resolve request
+     * @throws ArtifactResolutionException
+     */
+    public String buildArtifactResolveMessage(ArtifactResolve artifactResolve) throws ArtifactResolutionException {
+
+        Envelope envelope = new SAMLSSOSoapMessageService().buildSOAPMessage(artifactResolve);
         String envelopeElement;
         try {
             envelopeElement = SSOUtils.marshall(envelope);
@@ -131,6 +262,28 @@ public class SAMLSSOArtifactResolutionService {
         if (log.isDebugEnabled()) {
             log.debug("Artifact Resolve Request as a SOAP Message: " + envelopeElement);
         }
+        return envelopeElement;
+    }
+
+    /**
+     * Send the SOAP message with the artifact resolve request to the Artifact Resolve Endpoint. The response is
+     * unmarshalled while it is read from the connection, within the configured maximum response size.
+     *
+     * @param envelopeElement SOAP message with the artifact resolve request
+     * @return Unmarshalled response of the Artifact Resolve Endpoint
+     * @throws ArtifactResolutionException
+     */
+    public XMLObject sendArtifactResolveMessage(String envelopeElement) throws ArtifactResolutionException {
+
+        List<String> artifactResolveUrls = getArtifactResolveUrls();
+        String artifactResolveUrl = artifactResolveUrls.isEmpty() ?
+                SSOUtils.getArtifactResolveUrl(authenticatorProperties) : artifactResolveUrls.get(0);
+        return sendArtifactResolveMessage(envelopeElement, artifactResolveUrl, new SAMLSSOSoapMessageService());
+    }
+
+    private XMLObject sendArtifactResolveMessage(String envelopeElement, String artifactResolveUrl,
+                                                 SAMLSSOSoapMessageService soapMessageService)
+            throws ArtifactResolutionException {
 
         HttpHost proxy = null;
 
@@ -144,16 +297,77 @@ public class SAMLSSOArtifactResolutionService {
             }
         }
 
-        String artifactResponseString = soapMessageService.sendSOAP(envelopeElement, SSOUtils.getArtifactResolveUrl
-                (authenticatorProperties), proxy);
-        ArtifactResponse artifactResponse = extractArtifactResponse(artifactResponseString);
+        String idpKey = getIdPKey(artifactResolveUrl);
+        int maxConcurrentCalls = SSOUtils.getPositiveIntProperty(authenticatorProperties,
+                SSOConstants.ARTIFACT_RESOLVE_MAX_CONCURRENT_CALLS, (int) SSOUtils.getAuthenticatorConfigParameter(
+                        SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_MAX_CONCURRENT_CALLS,
+                        DEFAULT_MAX_CONCURRENT_CALLS));
+        int maxWaitTime = SSOUtils.getPositiveIntProperty(authenticatorProperties,
+                SSOConstants.ARTIFACT_RESOLVE_MAX_WAIT_TIME, (int) SSOUtils.getAuthenticatorConfigParameter(
+                        SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_MAX_WAIT_TIME, DEFAULT_MAX_WAIT_TIME));
+        ArtifactResolutionBulkhead.Compartment compartment = ArtifactResolutionBulkhead.getInstance().acquire(idpKey,
+                maxConcurrentCalls, maxWaitTime);
+        try {
+            ArtifactResolutionCircuitBreaker circuitBreaker = ArtifactResolutionCircuitBreaker.getInstance();
+            boolean isProbe = circuitBreaker.acquire(idpKey);
+
+            long startTime = System.nanoTime();
+            boolean isSuccessful = false;
+            try {
+                XMLObject soapMessage = soapMessageService.sendSOAPMessage(envelopeElement, artifactResolveUrl,
+                        proxy, authenticatorProperties);
+                isSuccessful = true;
+                return soapMessage;
+            } finally {
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                if (isSuccessful) {
+                    circuitBreaker.recordSuccess(idpKey, latency);
+                    ArtifactResolutionLatencyTracker.getInstance().recordLatency(idpKey, latency);
+                } else if (!soapMessageService.isAborted()) {
+                    circuitBreaker.recordFailure(idpKey);
+                } else if (isProbe) {
+                    // An aborted request is not a failure of the IdP, but an aborted probe must not keep the circuit
+                    // half-open.
+                    circuitBreaker.releaseProbe(idpKey);
+                }
+            }
+        } finally {
+            compartment.release();
+        }
+    }
+
+    /**
+     * Get the key of the identity provider used for its circuit breaker and bulkhead, which is the IdP entity ID
+     * within the tenant, or the artifact resolve URL if the IdP entity ID is not configured.
+     */
+    private String getIdPKey(String artifactResolveUrl) {
+
+        String idpEntityId = authenticatorProperties.get(IdentityApplicationConstants.Authenticator.SAML2SSO
+                .IDP_ENTITY_ID);
+        return tenantDomain + ":" + (StringUtils.isNotBlank(idpEntityId) ? idpEntityId : artifactResolveUrl);
+    }
+
+    /**
+     * Extract the artifact response from the response of the Artifact Resolve Endpoint and validate it against the
+     * artifact resolve request.
+     *
+     * @param artifactResolve Artifact Resolve Request
+     * @param soapMessage     Unmarshalled response of the Artifact Resolve Endpoint
+     * @return ArtifactResponse
+     * @throws ArtifactResolutionException
+     */
+    public ArtifactResponse processArtifactResponse(ArtifactResolve artifactResolve, XMLObject soapMessage)
+            throws ArtifactResolutionException {
 
+        ArtifactResponse artifactResponse = extractArtifactResponse(soapMessage);
         validateArtifactResponse(artifactResolve, artifactResponse);
         return artifactResponse;
     }
 
     /**
      * Extract Artifact response object from soap message string. Return null if fail.
+     * The SOAP envelope is parsed once and the artifact response is unmarshalled in place, through the SOAP 1.1
+     * object model.
      *
      * @param artifactResponseString Response string from artifact resolver.
      * @return Extracted artifact response object.
@@ -162,37 +376,31 @@ public class SAMLSSOArtifactResolutionService {
     public ArtifactResponse extractArtifactResponse(String artifactResponseString)
             throws ArtifactResolutionException {
 
-        ArtifactResponse artifactResponse = null;
-        InputStream stream = new ByteArrayInputStream(artifactResponseString.getBytes(StandardCharsets.UTF_8));
+        XMLObject soapMessage;
         try {
-            MessageFactory messageFactory = MessageFactory.newInstance();
-            SOAPMessage soapMessage = messageFactory.createMessage(new MimeHeaders(), stream);
-            SOAPBody soapBody = soapMessage.getSOAPBody();
-            Iterator iterator = soapBody.getChildElements();
-
-            while (iterator.hasNext()) {
-                SOAPBodyElement artifactResponseElement = (SOAPBodyElement) iterator.next();
-
-                if (StringUtils.equals(SAMLConstants.SAML20P_NS, artifactResponseElement.getNamespaceURI()) &&
-                        StringUtils.equals(ArtifactResponse.DEFAULT_ELEMENT_LOCAL_NAME,
-                                artifactResponseElement.getLocalName())) {
-
-                    DOMSource source = new DOMSource(artifactResponseElement);
-                    StringWriter stringResult = new StringWriter();
-                    TransformerFactory.newInstance().newTransformer().transform(
-                            source, new StreamResult(stringResult));
-                    artifactResponse = (ArtifactResponse) SSOUtils.unmarshall(stringResult.toString());
-                } else {
-                    throw new ArtifactResolutionException("Received invalid artifact response with nameSpaceURI: " +
-                            artifactResponseElement.getNamespaceURI() + " and localName: " +
-                            artifactResponseElement.getLocalName());
-                }
-            }
-        } catch (SOAPException | IOException | TransformerException e) {
-            throw new ArtifactResolutionException("Didn't receive valid artifact response.", e);
+            soapMessage = SSOUtils.unmarshall(artifactResponseString);
         } catch (SAMLSSOException e) {
             throw new ArtifactResolutionException("Encountered error unmarshalling response into SAML2 object", e);
         }
+        return extractArtifactResponse(soapMessage);
+    }
+
+    private ArtifactResponse extractArtifactResponse(XMLObject soapMessage) throws ArtifactResolutionException {
+
+        if (!(soapMessage instanceof Envelope) || ((Envelope) soapMessage).getBody() == null) {
+            throw new ArtifactResolutionException("Didn't receive valid artifact response.");
+        }
+
+        ArtifactResponse artifactResponse = null;
+        for (XMLObject artifactResponseElement : ((Envelope) soapMessage).getBody().getUnknownXMLObjects()) {
+            if (artifactResponseElement instanceof ArtifactResponse) {
+                artifactResponse = (ArtifactResponse) artifactResponseElement;
+            } else {
+                QName elementQName = artifactResponseElement.getElementQName();
+                throw new ArtifactResolutionException("Received invalid artifact response with nameSpaceURI: " +
+                        elementQName.getNamespaceURI() + " and localName: " + elementQName.getLocalPart());
+            }
+        }
         return artifactResponse;
     }
 
@@ -264,9 +472,226 @@ public class SAMLSSOArtifactResolutionService {
             String signatureAlgo = SSOUtils.getSignatureAlgorithm(authenticatorProperties);
             String digestAlgo = SSOUtils.getDigestAlgorithm(authenticatorProperties);
             SSOUtils.setSignature(artifactResolveObj, signatureAlgo, digestAlgo, true,
-                    new X509CredentialImpl(tenantDomain, null));
+                    X509CredentialCache.getInstance().getCredential(tenantDomain));
         } catch (SAMLSSOException e) {
             throw new ArtifactResolutionException("Error in signing the Artifact Resolve request", e);
         }
     }
+
+    private static <T, R> Function<T, R> unchecked(ArtifactResolutionStage<T, R> stage) {
+
+        return input -> {
+            try {
+                return stage.apply(input);
+            } catch (ArtifactResolutionException e) {
+                throw new CompletionException(e);
+            }
+        };
+    }
+
+    /**
+     * Get the time to wait for the artifact resolve endpoints of the identity provider before sending a hedged
+     * request to the next endpoint. This is the configured percentile of the recent latencies of the identity
+     * provider, or the configured hedging delay until enough latencies are recorded.
+     */
+    private long getHedgingDelay(String idpKey) {
+
+        long hedgingDelay = ArtifactResolutionLatencyTracker.getInstance().getPercentile(idpKey,
+                SSOUtils.getAuthenticatorConfigParameter(
+                        SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_HEDGING_PERCENTILE, DEFAULT_HEDGING_PERCENTILE));
+        if (hedgingDelay < 0) {
+            hedgingDelay = SSOUtils.getAuthenticatorConfigParameter(
+                    SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_HEDGING_DELAY, DEFAULT_HEDGING_DELAY);
+        }
+        return hedgingDelay;
+    }
+
+    /**
+     * Artifact resolution with hedged requests across the artifact resolve endpoints of the identity provider. The
+     * endpoints are tried in the configured order. The next endpoint is called when the endpoints called so far
+     * have not answered within the hedging delay, or when one of them fails. The first artifact response which
+     * passes the validation wins, and the requests still in progress are aborted.
+     */
+    private class HedgedArtifactResolution {
+
+        private final ArtifactResolve artifactResolve;
+        private final String envelopeElement;
+        private final List<String> artifactResolveUrls;
+        private final String idpKey;
+        private final CompletableFuture<ArtifactResponse> artifactResponseFuture = new CompletableFuture<>();
+        private final List<SAMLSSOSoapMessageService> attempts = new ArrayList<>();
+        private int nextAttempt;
+        private int pendingAttempts;
+        private ScheduledFuture<?> hedge;
+
+        HedgedArtifactResolution(ArtifactResolve artifactResolve, String envelopeElement,
+                                 List<String> artifactResolveUrls) {
+
+            this.artifactResolve = artifactResolve;
+            this.envelopeElement = envelopeElement;
+            this.artifactResolveUrls = artifactResolveUrls;
+            this.idpKey = getIdPKey(artifactResolveUrls.get(0));
+        }
+
+        CompletableFuture<ArtifactResponse> start() {
+
+            sendNext();
+            return artifactResponseFuture;
+        }
+
+        /**
+         * Resolve the artifact on the calling thread. The first request is sent on the calling thread and the hedged
+         * requests on the artifact resolution thread pool. The deadline is taken before the first request is sent,
+         * and is the request timeout of the identity provider for each endpoint, after which the requests in flight
+         * are aborted.
+         */
+        ArtifactResponse resolve() throws ArtifactResolutionException {
+
+            long timeout = artifactResolveUrls.size() *
+                    SAMLSSOSoapMessageService.getRequestTimeout(authenticatorProperties);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+            SAMLSSOSoapMessageService soapMessageService = addAttempt();
+            send(artifactResolveUrls.get(0), soapMessageService);
+
+            try {
+                artifactResponseFuture.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                abort(new ArtifactResolutionException(ErrorMessages.ARTIFACT_RESOLUTION_TIMED_OUT.getCode(),
+                        "Artifact resolve endpoints did not answer within " + timeout + " ms.", e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(new ArtifactResolutionException("Interrupted while resolving the artifact.", e));
+            } catch (ExecutionException e) {
+                // The failure is thrown below.
+            }
+
+            try {
+                return artifactResponseFuture.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ArtifactResolutionException) {
+                    throw (ArtifactResolutionException) e.getCause();
+                }
+                throw new ArtifactResolutionException("Error while resolving the artifact.", e.getCause());
+            }
+        }
+
+        private synchronized void sendNext() {
+
+            SAMLSSOSoapMessageService soapMessageService = addAttempt();
+            if (soapMessageService == null) {
+                return;
+            }
+            String artifactResolveUrl = artifactResolveUrls.get(nextAttempt - 1);
+            if (log.isDebugEnabled() && nextAttempt > 1) {
+                log.debug("Sending a hedged artifact resolve request to: " + artifactResolveUrl);
+            }
+            try {
+                ArtifactResolutionExecutor.getInstance().getExecutorService().execute(() ->
+                        send(artifactResolveUrl, soapMessageService));
+            } catch (RejectedExecutionException e) {
+                onFailure(new ArtifactResolutionException("Artifact resolution thread pool is saturated. " +
+                        "Rejected the artifact resolution with: " + artifactResolveUrl, e));
+            }
+        }
+
+        /**
+         * Register the next attempt and schedule the hedged request to the endpoint after it.
+         *
+         * @return SOAP message service of the attempt, or null if the resolution is completed or no endpoint is left.
+         */
+        private synchronized SAMLSSOSoapMessageService addAttempt() {
+
+            if (artifactResponseFuture.isDone() || nextAttempt >= artifactResolveUrls.size()) {
+                return null;
+            }
+            nextAttempt++;
+            SAMLSSOSoapMessageService soapMessageService = new SAMLSSOSoapMessageService();
+            attempts.add(soapMessageService);
+            pendingAttempts++;
+            if (nextAttempt < artifactResolveUrls.size()) {
+                hedge = ArtifactResolutionExecutor.getInstance().getScheduler().schedule(this::sendNext,
+                        getHedgingDelay(idpKey), TimeUnit.MILLISECONDS);
+            }
+            return soapMessageService;
+        }
+
+        /**
+         * Fail the resolution, without sending further requests, and abort the requests in flight.
+         */
+        private synchronized void abort(ArtifactResolutionException e) {
+
+            nextAttempt = artifactResolveUrls.size();
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+            if (artifactResponseFuture.completeExceptionally(e)) {
+                for (SAMLSSOSoapMessageService attempt : attempts) {
+                    attempt.abort();
+                }
+            }
+        }
+
+        private void send(String artifactResolveUrl, SAMLSSOSoapMessageService soapMessageService) {
+
+            try {
+                XMLObject soapMessage = sendArtifactResolveMessage(envelopeElement, artifactResolveUrl,
+                        soapMessageService);
+                onSuccess(soapMessageService, processArtifactResponse(artifactResolve, soapMessage));
+            } catch (ArtifactResolutionException e) {
+                onFailure(e);
+            } catch (RuntimeException e) {
+                onFailure(new ArtifactResolutionException("Error while resolving the artifact with: " +
+                        artifactResolveUrl, e));
+            }
+        }
+
+        private synchronized void onSuccess(SAMLSSOSoapMessageService winner, ArtifactResponse artifactResponse) {
+
+            pendingAttempts--;
+            if (!artifactResponseFuture.complete(artifactResponse)) {
+                return;
+            }
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+            for (SAMLSSOSoapMessageService attempt : attempts) {
+                if (attempt != winner) {
+                    attempt.abort();
+                }
+            }
+        }
+
+        private synchronized void onFailure(ArtifactResolutionException e) {
+
+            pendingAttempts--;
+            if (artifactResponseFuture.isDone()) {
+                return;
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Artifact resolution attempt failed.", e);
+            }
+            if (nextAttempt < artifactResolveUrls.size()) {
+                // Fail over to the next endpoint without waiting for the hedging delay.
+                if (hedge != null) {
+                    hedge.cancel(false);
+                }
+                sendNext();
+            } else if (pendingAttempts == 0) {
+                artifactResponseFuture.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stage of the asynchronous artifact resolution.
+     *
+     * @param <T> Type of the input of the stage.
+     * @param <R> Type of the result of the stage.
+     */
+    @FunctionalInterface
+    private interface ArtifactResolutionStage<T, R> {
+
+        R apply(T input) throws ArtifactResolutionException;
+    }
 }
@@ -18,34 +18,45 @@
 
 package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.opensaml.core.xml.XMLObject;
 import org.opensaml.saml.common.SAMLObject;
 import org.opensaml.soap.common.SOAPObjectBuilder;
 import org.opensaml.soap.soap11.Body;
 import org.opensaml.soap.soap11.Envelope;
 import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
 import org.opensaml.core.xml.XMLObjectBuilderFactory;
-import org.wso2.carbon.base.ServerConfiguration;
 import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
 import org.wso2.carbon.utils.CarbonUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.KeyStore;
-import javax.net.ssl.KeyManagerFactory;
+import java.util.Collections;
+import java.util.Map;
 import javax.net.ssl.SSLContext;
 
 /**
@@ -54,6 +65,15 @@ import javax.net.ssl.SSLContext;
 public class SAMLSSOSoapMessageService {
     private static final String CONTENT_TYPE = "text/xml; charset=utf-8";
     private static final Log log = LogFactory.getLog(SAMLSSOSoapMessageService.class);
+    private static final long DEFAULT_CONNECT_TIMEOUT = 5000;
+    private static final long DEFAULT_SOCKET_TIMEOUT = 10000;
+    private static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT = 5000;
+    private static final long DEFAULT_MAX_RESPONSE_SIZE = 5 * 1024 * 1024;
+    private static final int DEBUG_LOG_PREFIX_SIZE = 4096;
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private volatile HttpPost currentRequest;
+    private volatile boolean isAborted;
 
     /**
      * Build a SOAP Message.
@@ -88,80 +108,229 @@ public class SAMLSSOSoapMessageService {
      */
     public String sendSOAP(String message, String url, HttpHost proxy) throws ArtifactResolutionException {
 
-        StringBuilder soapResponse = new StringBuilder();
-        try {
-            HttpPost httpPost = new HttpPost(url);
-            setRequestProperties(url, message, httpPost);
+        return sendSOAP(message, url, proxy, Collections.emptyMap());
+    }
 
-            HttpClientBuilder httpClientBuilder = HttpClientBuilder.create();
-            SSLContext sslContext = getSSLContext(CarbonUtils.getServerConfiguration());
+    /**
+     * Send SOAP message using the pooled HTTP client.
+     *
+     * @param message                 message that needs to be send
+     * @param url                     url that the artifact resolve request should be sent
+     * @param proxy                   HttpHost proxy if configured in carbon.xml
+     * @param authenticatorProperties authenticator properties of the identity provider
+     * @return response of invoking artifact resolve endpoint
+     * @throws ArtifactResolutionException
+     */
+    public String sendSOAP(String message, String url, HttpHost proxy, Map<String, String> authenticatorProperties)
+            throws ArtifactResolutionException {
+
+        return execute(message, url, proxy, authenticatorProperties, (inputStream, charset) -> {
+            ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+            byte[] buffer = new byte[SKIP_BUFFER_SIZE];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                responseBody.write(buffer, 0, count);
+            }
+            return new String(responseBody.toByteArray(), charset);
+        });
+    }
 
-            if (sslContext != null) {
-                httpClientBuilder.setSslcontext(sslContext);
+    /**
+     * Send SOAP message using the pooled HTTP client and unmarshall the response. The response body is streamed
+     * into the XML parser, without buffering it.
+     *
+     * @param message                 message that needs to be send
+     * @param url                     url that the artifact resolve request should be sent
+     * @param proxy                   HttpHost proxy if configured in carbon.xml
+     * @param authenticatorProperties authenticator properties of the identity provider
+     * @return unmarshalled response of invoking artifact resolve endpoint
+     * @throws ArtifactResolutionException
+     */
+    public XMLObject sendSOAPMessage(String message, String url, HttpHost proxy,
+                                     Map<String, String> authenticatorProperties)
+            throws ArtifactResolutionException {
 
-                if (proxy != null) {
-                    httpClientBuilder.setProxy(proxy);
+        return execute(message, url, proxy, authenticatorProperties, (inputStream, charset) -> {
+            try {
+                return SSOUtils.unmarshall(inputStream);
+            } catch (SAMLSSOException e) {
+                if (e.getCause() instanceof IOException) {
+                    // Failures while reading the response, such as timeouts, are reported as such.
+                    throw (IOException) e.getCause();
                 }
+                throw new ArtifactResolutionException("Encountered error unmarshalling response into SAML2 object",
+                        e);
             }
+        });
+    }
 
-            CloseableHttpClient httpClient = httpClientBuilder.build();
-            HttpResponse httpResponse = httpClient.execute(httpPost);
+    private <T> T execute(String message, String url, HttpHost proxy, Map<String, String> authenticatorProperties,
+                          ResponseBodyReader<T> responseBodyReader) throws ArtifactResolutionException {
 
-            int responseCode = httpResponse.getStatusLine().getStatusCode();
-            if (responseCode != 200) {
-                throw new ArtifactResolutionException("Problem in communicating with: " + url + ". Received response: "
-                        + responseCode);
-            } else {
-                log.info("Successful response from the URL: " + url);
-                soapResponse.append(getResponseBody(httpResponse));
+        try {
+            HttpPost httpPost = new HttpPost(url);
+            setRequestProperties(url, message, httpPost);
+            httpPost.setConfig(getRequestConfig(proxy, authenticatorProperties));
+            currentRequest = httpPost;
+            if (isAborted) {
+                httpPost.abort();
+            }
+
+            SSLContext sslContext = ArtifactResolutionSSLContextHolder.getInstance().getSSLContext(
+                    CarbonUtils.getServerConfiguration());
+            CloseableHttpClient httpClient = ArtifactResolutionHttpClient.getInstance().getHttpClient(sslContext, url,
+                    proxy, getMaxConnections(authenticatorProperties));
+
+            try (CloseableHttpResponse httpResponse = httpClient.execute(httpPost)) {
+                int responseCode = httpResponse.getStatusLine().getStatusCode();
+                if (responseCode != 200) {
+                    EntityUtils.consumeQuietly(httpResponse.getEntity());
+                    throw new ArtifactResolutionException("Problem in communicating with: " + url + ". Received " +
+                            "response: " + responseCode);
+                } else {
+                    log.info("Successful response from the URL: " + url);
+                    return readResponseBody(url, httpPost, httpResponse, responseBodyReader);
+                }
             }
         } catch (UnknownHostException e1) {
             throw new ArtifactResolutionException("Unknown targeted host: " + url, e1);
+        } catch (ConnectTimeoutException | SocketTimeoutException e) {
+            throw new ArtifactResolutionException(ErrorMessages.ARTIFACT_RESOLUTION_TIMED_OUT.getCode(),
+                    "Timed out while communicating with: " + url, e);
         } catch (IOException e2) {
             throw new ArtifactResolutionException("Could not open connection with host: " + url, e2);
         } catch (GeneralSecurityException e3) {
             throw new ArtifactResolutionException("Error in creating SSL context: " + e3);
         }
-        return soapResponse.toString();
     }
 
     /**
-     * Create an SSLContext object by parsing the Keystore configured in carbon.xml file.
-     *
-     * @param serverConfig serverConfig Object that contains properties configured in carbon.xml.
-     * @return SSLContext or null if creation failed.
-     * @throws GeneralSecurityException
+     * Read the response body while enforcing the maximum response size. The request is aborted as soon as the
+     * response is known to exceed the maximum size, so that the rest of the response is not read.
      */
-    private SSLContext getSSLContext(final ServerConfiguration serverConfig)
-            throws GeneralSecurityException {
+    private <T> T readResponseBody(String url, HttpPost httpPost, HttpResponse httpResponse,
+                                   ResponseBodyReader<T> responseBodyReader)
+            throws IOException, ArtifactResolutionException {
 
-        SSLContext sslContext = null;
-        KeyManagerFactory keyManagerFactory;
-        KeyStore keyStore;
-        String keyStorePath;
-        String keyStorePassword;
-        String keyStoreType;
-
-        if (serverConfig != null) {
-            keyStorePath = serverConfig.getFirstProperty(SSOConstants.SECURITY_KEYSTORE_LOCATION);
-            keyStorePassword = serverConfig.getFirstProperty(SSOConstants.ServerConfig.KEY_PASSWORD);
-            keyStoreType = serverConfig.getFirstProperty(SSOConstants.SECURITY_KEYSTORE_TYPE);
-
-            char[] kspassphrase = keyStorePassword.toCharArray();
+        HttpEntity entity = httpResponse.getEntity();
+        if (entity == null) {
+            throw new ArtifactResolutionException("Received an empty response from: " + url);
+        }
 
-            sslContext = SSLContext.getInstance("TLS");
-            keyManagerFactory = KeyManagerFactory.getInstance("SunX509");
-            keyStore = SSOUtils.loadKeyStoreFromFileSystem(keyStorePath, keyStorePassword, keyStoreType);
-            keyManagerFactory.init(keyStore, kspassphrase);
-            sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        long maxResponseSize = SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_MAX_RESPONSE_SIZE, DEFAULT_MAX_RESPONSE_SIZE);
+        if (entity.getContentLength() > maxResponseSize) {
+            httpPost.abort();
+            throw getResponseSizeExceededException(url, maxResponseSize);
+        }
 
+        Charset charset = ContentType.getOrDefault(entity).getCharset();
+        ResponseBodyInputStream responseBody = new ResponseBodyInputStream(entity.getContent(), maxResponseSize,
+                log.isDebugEnabled() ? DEBUG_LOG_PREFIX_SIZE : 0);
+        try {
+            T result = responseBodyReader.read(responseBody, charset != null ? charset : StandardCharsets.UTF_8);
+            // Read the rest of the response, if any, so that the connection can be reused.
+            while (responseBody.skip(Long.MAX_VALUE) > 0) {
+                // Skip until the end of the response.
+            }
+            return result;
+        } catch (ResponseSizeExceededException e) {
+            httpPost.abort();
+            throw getResponseSizeExceededException(url, maxResponseSize);
+        } finally {
             if (log.isDebugEnabled()) {
-                log.debug("Created SSL Context using keystore: " + keyStorePath + " and keyStorePassword: " +
-                        keyStorePassword);
+                log.debug("Response Body:" + responseBody.getPrefix(charset != null ? charset :
+                        StandardCharsets.UTF_8));
             }
+            responseBody.close();
+        }
+    }
+
+    private ArtifactResolutionException getResponseSizeExceededException(String url, long maxResponseSize) {
+
+        return new ArtifactResolutionException(ErrorMessages.ARTIFACT_RESPONSE_SIZE_EXCEEDED.getCode(),
+                "Response from: " + url + " exceeds the maximum allowed size of " + maxResponseSize + " bytes.");
+    }
+
+    /**
+     * Abort the request being sent by this service, if any. A request sent after this service is aborted fails
+     * without being sent.
+     */
+    public void abort() {
+
+        isAborted = true;
+        HttpPost httpPost = currentRequest;
+        if (httpPost != null) {
+            httpPost.abort();
         }
+    }
+
+    /**
+     * Check whether this service was aborted.
+     *
+     * @return true if {@link #abort()} was called.
+     */
+    public boolean isAborted() {
 
-        return sslContext;
+        return isAborted;
+    }
+
+    private int getMaxConnections(Map<String, String> authenticatorProperties) {
+
+        return SSOUtils.getPositiveIntProperty(authenticatorProperties, SSOConstants.ARTIFACT_RESOLVE_MAX_CONNECTIONS,
+                ArtifactResolutionHttpClient.getInstance().getDefaultMaxConnectionsPerRoute());
+    }
+
+    /**
+     * Build the request configuration with the timeouts configured for the identity provider. The server wide
+     * timeouts configured in application-authentication.xml are used for the timeouts which are not configured for
+     * the identity provider.
+     */
+    private RequestConfig getRequestConfig(HttpHost proxy, Map<String, String> authenticatorProperties) {
+
+        return RequestConfig.custom()
+                .setProxy(proxy)
+                .setConnectTimeout(getConnectTimeout(authenticatorProperties))
+                .setSocketTimeout(getSocketTimeout(authenticatorProperties))
+                .setConnectionRequestTimeout(getConnectionRequestTimeout(authenticatorProperties))
+                .build();
+    }
+
+    /**
+     * Get the time an artifact resolve request to the identity provider may take before it times out, when the
+     * response is not delayed between its packets. This is the sum of the connection request, connect and socket
+     * timeouts of the identity provider.
+     *
+     * @param authenticatorProperties Authenticator properties of the identity provider.
+     * @return Request timeout in milliseconds.
+     */
+    static long getRequestTimeout(Map<String, String> authenticatorProperties) {
+
+        return (long) getConnectionRequestTimeout(authenticatorProperties) +
+                getConnectTimeout(authenticatorProperties) + getSocketTimeout(authenticatorProperties);
+    }
+
+    private static int getConnectTimeout(Map<String, String> authenticatorProperties) {
+
+        return SSOUtils.getPositiveIntProperty(authenticatorProperties,
+                SSOConstants.ARTIFACT_RESOLVE_CONNECT_TIMEOUT, (int) SSOUtils.getAuthenticatorConfigParameter(
+                        SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT));
+    }
+
+    private static int getSocketTimeout(Map<String, String> authenticatorProperties) {
+
+        return SSOUtils.getPositiveIntProperty(authenticatorProperties,
+                SSOConstants.ARTIFACT_RESOLVE_SOCKET_TIMEOUT, (int) SSOUtils.getAuthenticatorConfigParameter(
+                        SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_SOCKET_TIMEOUT, DEFAULT_SOCKET_TIMEOUT));
+    }
+
+    private static int getConnectionRequestTimeout(Map<String, String> authenticatorProperties) {
+
+        return SSOUtils.getPositiveIntProperty(authenticatorProperties,
+                SSOConstants.ARTIFACT_RESOLVE_CONNECTION_REQUEST_TIMEOUT, (int) SSOUtils
+                        .getAuthenticatorConfigParameter(
+                                SSOConstants.ServerConfig.ARTIFACT_RESOLUTION_CONNECTION_REQUEST_TIMEOUT,
+                                DEFAULT_CONNECTION_REQUEST_TIMEOUT));
     }
 
     private void setRequestProperties(String url, String message, HttpPost httpPost) {
@@ -176,18 +345,88 @@ public class SAMLSSOSoapMessageService {
         httpPost.setEntity(new StringEntity(message, ContentType.create(CONTENT_TYPE)));
     }
 
-    private static String getResponseBody(HttpResponse response) throws ArtifactResolutionException {
+    /**
+     * Reader of the body of a successful response.
+     *
+     * @param <T> Type of the result of reading the response body.
+     */
+    @FunctionalInterface
+    private interface ResponseBodyReader<T> {
 
-        ResponseHandler<String> responseHandler = new BasicResponseHandler();
-        String responseBody;
-        try {
-            responseBody = responseHandler.handleResponse(response);
-        } catch (IOException e) {
-            throw new ArtifactResolutionException("Error when retrieving the HTTP response body.", e);
+        T read(InputStream inputStream, Charset charset) throws IOException, ArtifactResolutionException;
+    }
+
+    /**
+     * Stream of the response body which fails once more than the maximum response size has been read. The first
+     * bytes of the response can be kept, to be logged.
+     */
+    private static class ResponseBodyInputStream extends FilterInputStream {
+
+        private final long maxSize;
+        private final int prefixSize;
+        private final ByteArrayOutputStream prefix;
+        private long size;
+
+        ResponseBodyInputStream(InputStream inputStream, long maxSize, int prefixSize) {
+
+            super(inputStream);
+            this.maxSize = maxSize;
+            this.prefixSize = prefixSize;
+            this.prefix = new ByteArrayOutputStream(prefixSize);
         }
-        if (log.isDebugEnabled()) {
-            log.debug("Response Body:" + responseBody);
+
+        @Override
+        public int read() throws IOException {
+
+            int b = super.read();
+            if (b != -1) {
+                onRead(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
         }
-        return responseBody;
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                onRead(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+
+            // Skipped bytes are read, so that they are counted towards the maximum size.
+            byte[] buffer = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+            int count = read(buffer, 0, buffer.length);
+            return Math.max(count, 0);
+        }
+
+        private void onRead(byte[] b, int off, int count) throws ResponseSizeExceededException {
+
+            size += count;
+            if (size > maxSize) {
+                throw new ResponseSizeExceededException();
+            }
+            if (prefix.size() < prefixSize) {
+                prefix.write(b, off, Math.min(count, prefixSize - prefix.size()));
+            }
+        }
+
+        String getPrefix(Charset charset) {
+
+            String prefixString = new String(prefix.toByteArray(), charset);
+            return size > prefix.size() ? prefixString + "..." : prefixString;
+        }
+    }
+
+    /**
+     * Thrown when the response body exceeds the maximum response size.
+     */
+    private static class ResponseSizeExceededException extends IOException {
+
+        private static final long serialVersionUID = -4107614563278214394L;
     }
 }
@@ -23,6 +23,8 @@ package org.wso2.carbon.identity.application.authenticator.samlsso.exception;
  */
 public class ArtifactResolutionException extends Exception {
 
+    private String errorCode;
+
     public ArtifactResolutionException(String message) {
         super(message);
     }
@@ -30,4 +32,23 @@ public class ArtifactResolutionException extends Exception {
     public ArtifactResolutionException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    public ArtifactResolutionException(String errorCode, String message) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+
+    public ArtifactResolutionException(String errorCode, String message, Throwable cause) {
+        super(message, cause);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Get the error code of the failure, if the failure has a specific error code.
+     *
+     * @return Error code or null.
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
 }
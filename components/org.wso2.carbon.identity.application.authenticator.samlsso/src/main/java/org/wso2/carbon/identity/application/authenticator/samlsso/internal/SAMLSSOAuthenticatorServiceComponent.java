@@ -32,10 +32,15 @@ import org.wso2.carbon.identity.application.authentication.framework.inbound.Htt
 import org.wso2.carbon.identity.application.authentication.framework.inbound.HttpIdentityResponseFactory;
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityProcessor;
 import org.wso2.carbon.identity.application.authenticator.samlsso.SAMLSSOAuthenticator;
+import org.wso2.carbon.identity.application.authenticator.samlsso.artifact.ArtifactResolutionExecutor;
+import org.wso2.carbon.identity.application.authenticator.samlsso.artifact.ArtifactResolutionHttpClient;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
 import org.wso2.carbon.identity.application.authenticator.samlsso.logout.processor.SAMLLogoutRequestProcessor;
 import org.wso2.carbon.identity.application.authenticator.samlsso.logout.processor.SAMLLogoutResponseProcessor;
 import org.wso2.carbon.identity.application.authenticator.samlsso.logout.request.SAMLLogoutRequestFactory;
 import org.wso2.carbon.identity.application.authenticator.samlsso.logout.response.SAMLLogoutResponseFactory;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.SAMLSignKeyStoreHolder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SAMLMessageSerializer;
 import org.wso2.carbon.identity.core.util.IdentityIOStreamUtils;
 import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.utils.CarbonUtils;
@@ -97,10 +102,19 @@ public class SAMLSSOAuthenticatorServiceComponent {
         } finally {
             IdentityIOStreamUtils.closeInputStream(fis);
         }
+
+        try {
+            SAMLMessageSerializer.init();
+        } catch (SAMLSSOException | RuntimeException e) {
+            log.error("Failed to initialize the serializer of the SAML messages.", e);
+        }
     }
 
     @Deactivate
     protected void deactivate(ComponentContext context) {
+        SAMLSignKeyStoreHolder.getInstance().shutdown();
+        ArtifactResolutionExecutor.getInstance().shutdown();
+        ArtifactResolutionHttpClient.getInstance().shutdown();
         if (log.isDebugEnabled()) {
             log.info("SAML2 SSO Authenticator bundle is deactivated");
         }
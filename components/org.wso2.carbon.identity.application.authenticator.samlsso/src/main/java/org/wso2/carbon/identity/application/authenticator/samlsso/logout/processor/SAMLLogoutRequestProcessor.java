@@ -96,14 +96,8 @@ public class SAMLLogoutRequestProcessor extends IdentityProcessor {
                 new HashMap<>());
 
         try {
-            XMLObject samlRequest;
-            if (samlMessageContext.getSAMLLogoutRequest().isPost()) {
-                samlRequest = SSOUtils.unmarshall(SSOUtils.decodeForPost(identityRequest.getParameter
-                        (SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ)));
-            } else {
-                samlRequest = SSOUtils.unmarshall(SSOUtils.decode(identityRequest.getParameter
-                        (SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ)));
-            }
+            XMLObject samlRequest = SSOUtils.unmarshallInboundMessage(identityRequest.getParameter
+                    (SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ), samlMessageContext.getSAMLLogoutRequest().isPost());
 
             LogoutRequest logoutRequest;
             if (samlRequest instanceof LogoutRequest) {
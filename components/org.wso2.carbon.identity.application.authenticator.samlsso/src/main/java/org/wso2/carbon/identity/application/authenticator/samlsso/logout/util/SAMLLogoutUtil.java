@@ -43,6 +43,7 @@ import org.wso2.carbon.identity.application.authenticator.samlsso.logout.context
 import org.wso2.carbon.identity.application.authenticator.samlsso.logout.exception.SAMLLogoutException;
 import org.wso2.carbon.identity.application.authenticator.samlsso.logout.validators.LogoutReqSignatureValidator;
 import org.wso2.carbon.identity.application.authenticator.samlsso.manager.DefaultSAML2SSOManager;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.X509CredentialCache;
 import org.wso2.carbon.identity.application.authenticator.samlsso.manager.X509CredentialImpl;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
 import org.wso2.carbon.identity.application.common.model.IdentityProvider;
@@ -219,7 +220,7 @@ public class SAMLLogoutUtil {
 
             if (isResponseSigned && SUCCESS_CODE.equals(statusCode)) {
                 SSOUtils.setSignature(logoutResp, null, null, isIncludeCert,
-                        new X509CredentialImpl(samlMessageContext.getTenantDomain(), null));
+                        X509CredentialCache.getInstance().getCredential(samlMessageContext.getTenantDomain()));
             }
             return logoutResp;
         } catch (SAMLSSOException e) {
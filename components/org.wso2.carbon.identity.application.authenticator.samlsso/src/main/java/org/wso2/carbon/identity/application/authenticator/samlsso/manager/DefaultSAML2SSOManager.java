@@ -19,8 +19,6 @@
 package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
 
 import net.shibboleth.utilities.java.support.xml.SerializeSupport;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -68,19 +66,13 @@ import org.opensaml.saml.saml2.core.impl.NameIDPolicyBuilder;
 import org.opensaml.saml.saml2.core.impl.RequestedAuthnContextBuilder;
 import org.opensaml.saml.saml2.core.impl.SessionIndexBuilder;
 import org.opensaml.saml.saml2.core.impl.StatusCodeImpl;
-import org.opensaml.saml.saml2.encryption.Decrypter;
 import org.opensaml.saml.security.impl.SAMLSignatureProfileValidator;
-import org.opensaml.security.credential.Credential;
-import org.opensaml.security.credential.CredentialSupport;
 import org.opensaml.security.x509.X509Credential;
-import org.opensaml.xmlsec.encryption.EncryptedKey;
-import org.opensaml.xmlsec.keyinfo.KeyInfoCredentialResolver;
-import org.opensaml.xmlsec.keyinfo.impl.StaticKeyInfoCredentialResolver;
 import org.opensaml.xmlsec.signature.impl.SignatureImpl;
 import org.opensaml.xmlsec.signature.support.SignatureException;
 import org.opensaml.xmlsec.signature.support.SignatureValidator;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.Node;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
@@ -95,7 +87,6 @@ import org.wso2.carbon.identity.application.authenticator.samlsso.internal.SAMLS
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
-import org.wso2.carbon.identity.application.common.model.CertificateInfo;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
 import org.wso2.carbon.identity.application.common.model.IdentityProvider;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
@@ -109,8 +100,6 @@ import org.wso2.carbon.user.api.UserRealm;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -118,10 +107,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 
-import javax.crypto.SecretKey;
 import javax.servlet.http.HttpServletRequest;
 
 import static org.apache.commons.collections.CollectionUtils.isNotEmpty;
@@ -142,6 +128,9 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
     private IdentityProvider identityProvider = null;
     private Map<String, String> properties;
     private String tenantDomain;
+    private String inboundSAMLRequest;
+    private boolean isInboundSAMLRequestPost;
+    private XMLObject inboundSAMLObject;
 
     public static void doBootstrap() {
 
@@ -250,10 +239,11 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
             }
             if (isSignAuth2SAMLUsingSuperTenant) {
                 SSOUtils.addSignatureToHTTPQueryString(httpQueryString, signatureAlgo,
-                        new X509CredentialImpl(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, null));
+                        X509CredentialCache.getInstance().getCredential(
+                                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME));
             } else {
                 SSOUtils.addSignatureToHTTPQueryString(httpQueryString, signatureAlgo,
-                        new X509CredentialImpl(context.getTenantDomain(), null));
+                        X509CredentialCache.getInstance().getCredential(context.getTenantDomain()));
             }
         }
         if (loginPage.indexOf("?") > -1) {
@@ -310,7 +300,7 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
             requestMessage = buildAuthnRequest(request, isPassive, loginPage, context);
             if (SSOUtils.isAuthnRequestSigned(properties)) {
                 SSOUtils.setSignature(requestMessage, signatureAlgo, digestAlgo, includeCert,
-                        new X509CredentialImpl(context.getTenantDomain(), null));
+                        X509CredentialCache.getInstance().getCredential(context.getTenantDomain()));
             }
         } else {
             String username = (String) request.getSession().getAttribute(SSOConstants.LOGOUT_USERNAME);
@@ -323,7 +313,7 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
                     nameIdFormat, context);
             if (SSOUtils.isLogoutRequestSigned(properties)) {
                 SSOUtils.setSignature(requestMessage, signatureAlgo, digestAlgo, includeCert,
-                        new X509CredentialImpl(context.getTenantDomain(), null));
+                        X509CredentialCache.getInstance().getCredential(context.getTenantDomain()));
             }
         }
 
@@ -374,6 +364,9 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
                 }
             }
         } catch (ArtifactResolutionException e) {
+            if (e.getErrorCode() != null) {
+                throw new SAMLSSOException(e.getErrorCode(), e.getMessage(), e);
+            }
             throw new SAMLSSOException(ErrorMessages.ARTIFACT_RESPONSE_RESOLUTION_FAILED.getCode(),
                     ErrorMessages.ARTIFACT_RESPONSE_RESOLUTION_FAILED.getMessage(), e);
         }
@@ -381,9 +374,8 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
 
     private void processSAMLResponse(HttpServletRequest request) throws SAMLSSOException {
 
-        String decodedResponse = new String(org.apache.commons.codec.binary.Base64.decodeBase64(request.getParameter(
-                SSOConstants.HTTP_POST_PARAM_SAML2_RESP).getBytes()));
-        XMLObject samlObject = SSOUtils.unmarshall(decodedResponse);
+        XMLObject samlObject = SSOUtils.unmarshallInboundMessage(request.getParameter(
+                SSOConstants.HTTP_POST_PARAM_SAML2_RESP), true);
         validateResponseFormat(samlObject);
         executeSAMLReponse(request, samlObject);
     }
@@ -391,8 +383,7 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
     private void executeSAMLReponse(HttpServletRequest request, XMLObject samlObject) throws SAMLSSOException {
         if (samlObject instanceof LogoutResponse) {
             //This is a SAML response for a single logout request from the SP
-            // TODO need to change the API of this method to prevent unmarshalling twice.
-            doSLO(request);
+            doSLO(request, samlObject);
         } else if (samlObject instanceof Response) {
             processSSOResponse(request, (Response) samlObject);
         } else {
@@ -426,13 +417,7 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
         String samlRequest = null;
         if (samlRequestParams != null && samlRequestParams.length > 0) {
             samlRequest = samlRequestParams[0];
-            XMLObject xmlObject;
-            if (authenticationRequest.isPost()) {
-                xmlObject = SSOUtils.unmarshall(SSOUtils.decodeForPost(samlRequest));
-            } else {
-                xmlObject = SSOUtils.unmarshall(SSOUtils.decode(samlRequest));
-            }
-            validateResponseFormat(xmlObject);
+            XMLObject xmlObject = getInboundSAMLObject(samlRequest, authenticationRequest.isPost());
             if (xmlObject instanceof AuthnRequest) {
                 authnRequest = (AuthnRequest) xmlObject;
             }
@@ -449,13 +434,8 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
             }
 
             if (samlRequest != null) {
-                XMLObject xmlObject;
-                if (SSOConstants.HTTP_POST.equals(request.getMethod())) {
-                    xmlObject = SSOUtils.unmarshall(SSOUtils.decodeForPost(samlRequest));
-                } else {
-                    xmlObject = SSOUtils.unmarshall(SSOUtils.decode(samlRequest));
-                }
-                validateResponseFormat(xmlObject);
+                XMLObject xmlObject = getInboundSAMLObject(samlRequest,
+                        SSOConstants.HTTP_POST.equals(request.getMethod()));
                 if (xmlObject instanceof AuthnRequest) {
                     AuthnRequest authnRequest = (AuthnRequest) xmlObject;
                     Extensions oldExtensions = authnRequest.getExtensions();
@@ -489,6 +469,30 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
         return extensions;
     }
 
+    /**
+     * Unmarshall and validate the inbound SAML request of the service provider. The last unmarshalled request is kept,
+     * so that the AuthnRequest and the extensions copied into the outbound AuthnRequest come from a single parse of
+     * the inbound request. A manager instance is created for each request by the authenticator, which scopes the kept
+     * request to the request being built. It is not stored in the AuthenticationContext, which is persisted.
+     *
+     * @param samlRequest Encoded inbound SAML request.
+     * @param isPost      Whether the inbound SAML request was received with the HTTP POST binding.
+     * @return Unmarshalled inbound SAML request.
+     * @throws SAMLSSOException If the inbound SAML request is not valid.
+     */
+    private XMLObject getInboundSAMLObject(String samlRequest, boolean isPost) throws SAMLSSOException {
+
+        if (inboundSAMLObject == null || isInboundSAMLRequestPost != isPost ||
+                !samlRequest.equals(inboundSAMLRequest)) {
+            XMLObject xmlObject = SSOUtils.unmarshallInboundMessage(samlRequest, isPost);
+            validateResponseFormat(xmlObject);
+            inboundSAMLRequest = samlRequest;
+            isInboundSAMLRequestPost = isPost;
+            inboundSAMLObject = xmlObject;
+        }
+        return inboundSAMLObject;
+    }
+
     /**
      * This method handles the logout requests from the IdP
      * Any request for the defined logout URL is handled here
@@ -500,13 +504,26 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
         doBootstrap();
         XMLObject samlObject = null;
         if (request.getParameter(SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ) != null) {
-            samlObject = SSOUtils.unmarshall(new String(Base64.decodeBase64(request.getParameter(
-                    SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ).getBytes())));
+            samlObject = SSOUtils.unmarshallInboundMessage(request.getParameter(
+                    SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ), true);
         }
         if (samlObject == null) {
-            samlObject = SSOUtils.unmarshall(new String(Base64.decodeBase64(request.getParameter(
-                    SSOConstants.HTTP_POST_PARAM_SAML2_RESP).getBytes())));
+            samlObject = SSOUtils.unmarshallInboundMessage(request.getParameter(
+                    SSOConstants.HTTP_POST_PARAM_SAML2_RESP), true);
         }
+        doSLO(request, samlObject);
+    }
+
+    /**
+     * This method handles a logout request from the IdP, or a logout response to a logout request of the SP, which
+     * is already unmarshalled.
+     *
+     * @param request    HTTP request which carried the logout message.
+     * @param samlObject Unmarshalled logout message.
+     * @throws SAMLSSOException If the logout message is not valid.
+     */
+    public void doSLO(HttpServletRequest request, XMLObject samlObject) throws SAMLSSOException {
+
         validateResponseFormat(samlObject);
         if (samlObject instanceof LogoutRequest) {
             LogoutRequest logoutRequest = (LogoutRequest) samlObject;
@@ -963,34 +980,21 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
             throws SAMLSSOException {
 
         Marshaller marshaller = XMLObjectProviderRegistrySupport.getMarshallerFactory().getMarshaller(requestMessage);
-        Element authDOM = null;
+        Element authDOM;
         try {
             authDOM = marshaller.marshall(requestMessage);
-
-            /* Compress the message */
-            Deflater deflater = new Deflater(Deflater.DEFLATED, true);
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(byteArrayOutputStream, deflater);
-            SerializeSupport.writeNode(authDOM, deflaterOutputStream);
-            deflaterOutputStream.close();
-
-            /* Encoding the compressed message */
-            String encodedRequestMessage = new String(org.apache.commons.codec.binary.Base64.encodeBase64(byteArrayOutputStream.toByteArray(), false));
-
-            byteArrayOutputStream.write(byteArrayOutputStream.toByteArray());
-            byteArrayOutputStream.toString();
-
-            // log saml
-            if (log.isDebugEnabled()) {
-                log.debug("SAML Request  :  " + deflaterOutputStream.toString());
-            }
-
-            return URLEncoder.encode(encodedRequestMessage, "UTF-8").trim();
-
-        } catch (MarshallingException | IOException e) {
+        } catch (MarshallingException e) {
             throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(),
                     "Error occurred while encoding SAML request", e);
         }
+
+        // log saml
+        if (log.isDebugEnabled()) {
+            log.debug("SAML Request  :  " + SerializeSupport.nodeToString(authDOM));
+        }
+
+        /* Compress and encode the message */
+        return SSOUtils.encodeForRedirect(authDOM);
     }
 
     /**
@@ -1001,18 +1005,33 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
      */
     protected void validateResponseFormat(XMLObject response) throws SAMLSSOException {
 
-        // Checking for duplicate samlp:Response. This is done to thwart possible XSW attacks
-        NodeList responseList = response.getDOM().getElementsByTagNameNS(SAMLConstants.SAML20P_NS, "Response");
-        if (responseList != null && responseList.getLength() > 0) {
-            throw new SAMLSSOException(ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getCode(),
-                    ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getMessage());
-        }
-
-        // Checking for multiple Assertions. This is done to thwart possible XSW attacks.
-        NodeList assertionList = response.getDOM().getElementsByTagNameNS(SAMLConstants.SAML20_NS, "Assertion");
-        if (assertionList != null && assertionList.getLength() > 1) {
-            throw new SAMLSSOException(ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getCode(),
-                    ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getMessage());
+        // Checking for duplicate samlp:Response and multiple Assertions in a single walk of the DOM. This is done to
+        // thwart possible XSW attacks. The walk is iterative, so that deeply nested messages cannot exhaust the stack.
+        Element root = response.getDOM();
+        int assertionCount = 0;
+        Node node = root.getFirstChild();
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                if ("Response".equals(node.getLocalName()) &&
+                        SAMLConstants.SAML20P_NS.equals(node.getNamespaceURI())) {
+                    throw new SAMLSSOException(ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getCode(),
+                            ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getMessage());
+                }
+                if ("Assertion".equals(node.getLocalName()) &&
+                        SAMLConstants.SAML20_NS.equals(node.getNamespaceURI()) && ++assertionCount > 1) {
+                    throw new SAMLSSOException(
+                            ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getCode(),
+                            ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getMessage());
+                }
+            }
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+            }
+            node = node != root ? node.getNextSibling() : null;
         }
     }
 
@@ -1174,7 +1193,6 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
     protected void validateSignature(XMLObject signature) throws SAMLSSOException {
 
         SignatureImpl signImpl = (SignatureImpl) signature;
-        CertificateInfo[] certificateInfos;
         boolean isExceptionThrown = false;
         SignatureException validationException = null;
         try {
@@ -1187,25 +1205,24 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
                     logMsg, ex);
         }
 
-        if (ArrayUtils.isEmpty(identityProvider.getCertificateInfoArray())) {
+        List<X509Credential> credentials = IdPCertificateCache.getInstance().getCredentials(tenantDomain,
+                identityProvider, signImpl.getKeyInfo());
+        if (credentials.isEmpty()) {
             throw new SAMLSSOException(ErrorMessages.SIGNATURE_VALIDATION_FAILED_FOR_SAML_RESPONSE.getCode(),
                     ErrorMessages.SIGNATURE_VALIDATION_FAILED_FOR_SAML_RESPONSE.getMessage(),
                     validationException);
         }
-
-        certificateInfos = identityProvider.getCertificateInfoArray();
         if (log.isDebugEnabled()) {
-            log.debug("The number of certificates has been found is: " + certificateInfos.length);
+            log.debug("The number of certificates has been found is: " + credentials.size());
         }
         int index = 0;
-        for (CertificateInfo certificateInfo : certificateInfos) {
-            String certVal = certificateInfo.getCertValue();
-            X509Credential credential = new X509CredentialImpl(tenantDomain, certVal);
+        for (X509Credential credential : credentials) {
             try {
                 if (log.isDebugEnabled()) {
                     log.debug("Validating the SAML signature with certificate at index: " + index);
                 }
                 SignatureValidator.validate(signImpl, credential);
+                IdPCertificateCache.getInstance().recordValidation(tenantDomain, identityProvider, credential, index);
                 isExceptionThrown = false;
                 break;
             } catch (SignatureException e) {
@@ -1264,16 +1281,9 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
      */
     protected Assertion getDecryptedAssertion(EncryptedAssertion encryptedAssertion) throws Exception {
 
-        X509Credential credential = new X509CredentialImpl(tenantDomain, null);
-        KeyInfoCredentialResolver keyResolver = new StaticKeyInfoCredentialResolver(credential);
-        EncryptedKey key = getEncryptedKey(encryptedAssertion);
-        Decrypter decrypter = new Decrypter(null, keyResolver, null);
-        SecretKey dkey = (SecretKey) decrypter.decryptKey(key, encryptedAssertion.getEncryptedData().
-                getEncryptionMethod().getAlgorithm());
-        Credential shared = CredentialSupport.getSimpleCredential(dkey);
-        decrypter = new Decrypter(new StaticKeyInfoCredentialResolver(shared), null, null);
-        decrypter.setRootInNewDocument(true);
-        return decrypter.decrypt(encryptedAssertion);
+        // The decrypted assertion has to be rooted in a new document only when its signature is validated.
+        boolean rootInNewDocument = SSOUtils.isAssertionSigningEnabled(properties);
+        return EncryptedAssertionDecrypter.getInstance(tenantDomain).decrypt(encryptedAssertion, rootInNewDocument);
     }
 
     /**
@@ -1325,23 +1335,4 @@ public class DefaultSAML2SSOManager implements SAML2SSOManager {
         // this is the issuer from the SAML federated authenticator.
         return properties.get(IdentityApplicationConstants.Authenticator.SAML2SSO.SP_ENTITY_ID);
     }
-
-    private EncryptedKey getEncryptedKey(EncryptedAssertion encryptedAssertion) throws Exception {
-
-        List<EncryptedKey> encryptedKeys = encryptedAssertion.getEncryptedData().getKeyInfo().getEncryptedKeys();
-        if (isNotEmpty(encryptedKeys)) {
-            if (log.isDebugEnabled()) {
-                log.debug("EncryptedKey obtain from the encrypted data element.");
-            }
-            return encryptedKeys.get(0);
-        }
-        encryptedKeys = encryptedAssertion.getEncryptedKeys();
-        if (isNotEmpty(encryptedKeys)) {
-            if (log.isDebugEnabled()) {
-                log.debug("EncryptedKey obtained from the Assertion.");
-            }
-            return encryptedKeys.get(0);
-        }
-        throw new Exception("Could not obtain the encrypted key from the encrypted assertion.");
-    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+import org.opensaml.saml.saml2.encryption.Decrypter;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.encryption.EncryptedData;
+import org.opensaml.xmlsec.encryption.EncryptedKey;
+import org.opensaml.xmlsec.encryption.support.DecryptionException;
+import org.opensaml.xmlsec.keyinfo.impl.StaticKeyInfoCredentialResolver;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.collections.CollectionUtils.isNotEmpty;
+
+/**
+ * Decrypts the encrypted assertions received by a tenant. An instance is kept per tenant and holds the key resolver
+ * and the decrypter built on the tenant signing credential, which are reused across responses. The decrypter is not
+ * modified after it is built, so it can be shared between threads. The instance of a tenant is rebuilt when the
+ * signing credential of the tenant changes.
+ * <p>
+ * The time spent on unwrapping the data encryption key and on decrypting the assertion is recorded separately for
+ * each tenant. The statistics of a tenant are kept when its decrypter is rebuilt.
+ */
+public class EncryptedAssertionDecrypter {
+
+    private static final Log log = LogFactory.getLog(EncryptedAssertionDecrypter.class);
+
+    private static final ConcurrentMap<String, EncryptedAssertionDecrypter> decrypters = new ConcurrentHashMap<>();
+
+    private final X509Credential credential;
+    private final Decrypter decrypter;
+    private final DecryptionStats stats;
+
+    private EncryptedAssertionDecrypter(X509Credential credential, DecryptionStats stats) {
+
+        this.credential = credential;
+        this.decrypter = new Decrypter(null, new StaticKeyInfoCredentialResolver(credential), null);
+        this.stats = stats;
+    }
+
+    /**
+     * Get the decrypter of the given tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Decrypter of the tenant.
+     * @throws SAMLSSOException If the signing credential of the tenant cannot be loaded.
+     */
+    public static EncryptedAssertionDecrypter getInstance(String tenantDomain) throws SAMLSSOException {
+
+        X509Credential credential = X509CredentialCache.getInstance().getCredential(tenantDomain);
+        EncryptedAssertionDecrypter assertionDecrypter = decrypters.get(tenantDomain);
+        if (assertionDecrypter != null && assertionDecrypter.credential == credential) {
+            return assertionDecrypter;
+        }
+        return decrypters.compute(tenantDomain, (key, current) -> {
+            if (current == null) {
+                return new EncryptedAssertionDecrypter(credential, new DecryptionStats());
+            }
+            return current.credential == credential ? current :
+                    new EncryptedAssertionDecrypter(credential, current.stats);
+        });
+    }
+
+    /**
+     * Get the decryption statistics of the given tenant.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Decryption statistics or null if no decrypter has been built for the tenant.
+     */
+    public static DecryptionStats getDecryptionStats(String tenantDomain) {
+
+        EncryptedAssertionDecrypter assertionDecrypter = decrypters.get(tenantDomain);
+        return assertionDecrypter != null ? assertionDecrypter.stats : null;
+    }
+
+    /**
+     * Decrypt the given encrypted assertion.
+     *
+     * @param encryptedAssertion Encrypted assertion.
+     * @param rootInNewDocument  Whether the decrypted assertion should be rooted in a new DOM document. This is
+     *                           required if the signature of the decrypted assertion is to be validated, since the
+     *                           signature reference can only be resolved within a document. Otherwise the assertion
+     *                           is decrypted in place, without copying it into a new document.
+     * @return Decrypted assertion.
+     * @throws DecryptionException If the assertion cannot be decrypted.
+     */
+    public Assertion decrypt(EncryptedAssertion encryptedAssertion, boolean rootInNewDocument)
+            throws DecryptionException {
+
+        EncryptedData encryptedData = encryptedAssertion.getEncryptedData();
+        EncryptedKey encryptedKey = getEncryptedKey(encryptedAssertion);
+
+        long startTime = System.nanoTime();
+        Key dataEncryptionKey = decrypter.decryptKey(encryptedKey, encryptedData.getEncryptionMethod()
+                .getAlgorithm());
+        long keyDecryptedTime = System.nanoTime();
+        XMLObject decryptedObject = decrypter.decryptData(encryptedData, dataEncryptionKey, rootInNewDocument);
+        long endTime = System.nanoTime();
+
+        stats.decryptionCount.incrementAndGet();
+        stats.keyDecryptionTime.addAndGet(keyDecryptedTime - startTime);
+        stats.dataDecryptionTime.addAndGet(endTime - keyDecryptedTime);
+        if (log.isDebugEnabled()) {
+            log.debug("Decrypted the encrypted assertion. Key decryption took " +
+                    TimeUnit.NANOSECONDS.toMicros(keyDecryptedTime - startTime) + " µs and data decryption took " +
+                    TimeUnit.NANOSECONDS.toMicros(endTime - keyDecryptedTime) + " µs.");
+        }
+
+        if (!(decryptedObject instanceof Assertion)) {
+            throw new DecryptionException("Decrypted object is not a SAML assertion.");
+        }
+        return (Assertion) decryptedObject;
+    }
+
+    private EncryptedKey getEncryptedKey(EncryptedAssertion encryptedAssertion) throws DecryptionException {
+
+        List<EncryptedKey> encryptedKeys = encryptedAssertion.getEncryptedData().getKeyInfo().getEncryptedKeys();
+        if (isNotEmpty(encryptedKeys)) {
+            if (log.isDebugEnabled()) {
+                log.debug("EncryptedKey obtain from the encrypted data element.");
+            }
+            return encryptedKeys.get(0);
+        }
+        encryptedKeys = encryptedAssertion.getEncryptedKeys();
+        if (isNotEmpty(encryptedKeys)) {
+            if (log.isDebugEnabled()) {
+                log.debug("EncryptedKey obtained from the Assertion.");
+            }
+            return encryptedKeys.get(0);
+        }
+        throw new DecryptionException("Could not obtain the encrypted key from the encrypted assertion.");
+    }
+
+    /**
+     * Decryption statistics of a tenant.
+     */
+    public static class DecryptionStats {
+
+        private final AtomicLong decryptionCount = new AtomicLong();
+        private final AtomicLong keyDecryptionTime = new AtomicLong();
+        private final AtomicLong dataDecryptionTime = new AtomicLong();
+
+        /**
+         * Get the number of assertions decrypted.
+         *
+         * @return Number of assertions decrypted.
+         */
+        public long getDecryptionCount() {
+
+            return decryptionCount.get();
+        }
+
+        /**
+         * Get the total time spent on unwrapping the data encryption keys of the decrypted assertions.
+         *
+         * @return Total key decryption time in nanoseconds.
+         */
+        public long getKeyDecryptionTime() {
+
+            return keyDecryptionTime.get();
+        }
+
+        /**
+         * Get the total time spent on decrypting the data of the decrypted assertions.
+         *
+         * @return Total data decryption time in nanoseconds.
+         */
+        public long getDataDecryptionTime() {
+
+            return dataDecryptionTime.get();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.X509Certificate;
+import org.opensaml.xmlsec.signature.X509Data;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.common.model.CertificateInfo;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the parsed certificates of the federated identity providers which are used to validate the signatures of
+ * the SAML messages. Parsed credentials are keyed by the SHA-256 fingerprint of the certificate value, so each
+ * certificate is decoded once instead of once per response. When the certificate list of an identity provider
+ * changes, the credentials of the certificates which are no longer in the list are dropped.
+ * <p>
+ * The certificate which last verified a signature of an identity provider is remembered, and returned first
+ * afterwards, so that responses do not pay for failed verifications against the old certificate after a key rollover.
+ * When the signature carries a certificate in its KeyInfo, the trusted certificate with the same digest is returned
+ * first. The embedded certificate is only used for this lookup and is never trusted on its own.
+ */
+public class IdPCertificateCache {
+
+    private static final Log log = LogFactory.getLog(IdPCertificateCache.class);
+
+    private static final String FINGERPRINT_ALGORITHM = "SHA-256";
+
+    private static final IdPCertificateCache INSTANCE = new IdPCertificateCache();
+
+    private final ConcurrentMap<String, X509Credential> credentials = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> certificateDigests = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<String>> idpFingerprints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ValidationStats> validationStats = new ConcurrentHashMap<>();
+
+    private IdPCertificateCache() {
+
+    }
+
+    public static IdPCertificateCache getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the credentials of the certificates configured for the given identity provider. The credential which last
+     * verified a signature of the identity provider comes first, followed by the rest in the order the certificates
+     * are configured.
+     *
+     * @param tenantDomain     Tenant domain of the identity provider.
+     * @param identityProvider Identity provider.
+     * @return Credentials of the identity provider certificates.
+     * @throws SAMLSSOException If a certificate of the identity provider cannot be decoded.
+     */
+    public List<X509Credential> getCredentials(String tenantDomain, IdentityProvider identityProvider)
+            throws SAMLSSOException {
+
+        return getCredentials(tenantDomain, identityProvider, null);
+    }
+
+    /**
+     * Get the credentials of the certificates configured for the given identity provider. If a certificate embedded
+     * in the given KeyInfo matches a configured certificate, the credential of that certificate comes first. It is
+     * followed by the credential which last verified a signature of the identity provider and the rest in the order
+     * the certificates are configured.
+     *
+     * @param tenantDomain     Tenant domain of the identity provider.
+     * @param identityProvider Identity provider.
+     * @param keyInfo          KeyInfo of the signature to be verified. Can be null.
+     * @return Credentials of the identity provider certificates.
+     * @throws SAMLSSOException If a certificate of the identity provider cannot be decoded.
+     */
+    public List<X509Credential> getCredentials(String tenantDomain, IdentityProvider identityProvider,
+                                               KeyInfo keyInfo) throws SAMLSSOException {
+
+        CertificateInfo[] certificateInfos = identityProvider.getCertificateInfoArray();
+        if (ArrayUtils.isEmpty(certificateInfos)) {
+            return Collections.emptyList();
+        }
+
+        List<String> certificateValues = new ArrayList<>(certificateInfos.length);
+        List<String> fingerprints = new ArrayList<>(certificateInfos.length);
+        for (CertificateInfo certificateInfo : certificateInfos) {
+            if (StringUtils.isNotBlank(certificateInfo.getCertValue())) {
+                certificateValues.add(certificateInfo.getCertValue());
+                fingerprints.add(getFingerprint(certificateInfo.getCertValue()));
+            }
+        }
+        updateFingerprints(getIdPKey(tenantDomain, identityProvider), fingerprints);
+
+        Set<String> embeddedCertificateDigests = getEmbeddedCertificateDigests(keyInfo);
+        X509Credential keyInfoCredential = null;
+        List<X509Credential> idpCredentials = new ArrayList<>(fingerprints.size());
+        for (int i = 0; i < fingerprints.size(); i++) {
+            String fingerprint = fingerprints.get(i);
+            X509Credential credential = credentials.get(fingerprint);
+            if (credential == null) {
+                credential = new X509CredentialImpl(tenantDomain, certificateValues.get(i));
+                credentials.put(fingerprint, credential);
+                addDigest(fingerprint, credential);
+            }
+            if (keyInfoCredential == null && embeddedCertificateDigests.contains(certificateDigests.get(fingerprint))) {
+                keyInfoCredential = credential;
+            }
+            idpCredentials.add(credential);
+        }
+
+        ValidationStats stats = validationStats.get(getIdPKey(tenantDomain, identityProvider));
+        if (stats != null && stats.lastVerifiedCredential != null) {
+            int index = idpCredentials.indexOf(stats.lastVerifiedCredential);
+            if (index > 0) {
+                idpCredentials.add(0, idpCredentials.remove(index));
+            }
+        }
+
+        if (keyInfoCredential != null) {
+            int index = idpCredentials.indexOf(keyInfoCredential);
+            if (index > 0) {
+                idpCredentials.add(0, idpCredentials.remove(index));
+            }
+        }
+        return idpCredentials;
+    }
+
+    /**
+     * Record the credential which verified a signature of the given identity provider, so that it is tried first for
+     * the next signature.
+     *
+     * @param tenantDomain     Tenant domain of the identity provider.
+     * @param identityProvider Identity provider.
+     * @param credential       Credential which verified the signature.
+     * @param attempt          Position of the credential in the list returned by
+     *                         {@link #getCredentials(String, IdentityProvider)}. Any value other than zero means
+     *                         that the validation had to fall back to another certificate.
+     */
+    public void recordValidation(String tenantDomain, IdentityProvider identityProvider, X509Credential credential,
+                                 int attempt) {
+
+        String idpKey = getIdPKey(tenantDomain, identityProvider);
+        ValidationStats stats = validationStats.computeIfAbsent(idpKey, key -> new ValidationStats());
+        stats.validationCount.incrementAndGet();
+        if (attempt > 0) {
+            stats.fallbackCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Signature of the identity provider: " + idpKey + " was verified with the certificate " +
+                        "at position: " + attempt + ". It will be tried first from now on.");
+            }
+        }
+        stats.lastVerifiedCredential = credential;
+    }
+
+    /**
+     * Get the signature validation statistics of the given identity provider.
+     *
+     * @param tenantDomain         Tenant domain of the identity provider.
+     * @param identityProviderName Name of the identity provider.
+     * @return Signature validation statistics or null if no signature of the identity provider has been validated.
+     */
+    public ValidationStats getValidationStats(String tenantDomain, String identityProviderName) {
+
+        return validationStats.get(tenantDomain + ":" + identityProviderName);
+    }
+
+    /**
+     * Remove the cached credentials of the given identity provider.
+     *
+     * @param tenantDomain     Tenant domain of the identity provider.
+     * @param identityProvider Identity provider.
+     */
+    public void invalidate(String tenantDomain, IdentityProvider identityProvider) {
+
+        String idpKey = getIdPKey(tenantDomain, identityProvider);
+        validationStats.remove(idpKey);
+        List<String> fingerprints = idpFingerprints.remove(idpKey);
+        if (fingerprints != null) {
+            for (String fingerprint : fingerprints) {
+                removeCredential(fingerprint);
+            }
+        }
+    }
+
+    /**
+     * Remove all the cached credentials.
+     */
+    public void invalidateAll() {
+
+        idpFingerprints.clear();
+        validationStats.clear();
+        credentials.clear();
+        certificateDigests.clear();
+    }
+
+    public int size() {
+
+        return credentials.size();
+    }
+
+    /**
+     * Record the current certificate fingerprints of an identity provider and drop the cached credentials of the
+     * certificates which have been removed from it.
+     */
+    private void updateFingerprints(String idpKey, List<String> fingerprints) {
+
+        List<String> previousFingerprints = idpFingerprints.put(idpKey, fingerprints);
+        if (previousFingerprints == null || previousFingerprints.equals(fingerprints)) {
+            return;
+        }
+
+        Set<String> removedFingerprints = new HashSet<>(previousFingerprints);
+        removedFingerprints.removeAll(fingerprints);
+        for (String fingerprint : removedFingerprints) {
+            removeCredential(fingerprint);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Certificates of the identity provider: " + idpKey + " have been changed. Removed " +
+                    removedFingerprints.size() + " certificates from the cache.");
+        }
+    }
+
+    private void removeCredential(String fingerprint) {
+
+        credentials.remove(fingerprint);
+        certificateDigests.remove(fingerprint);
+    }
+
+    private void addDigest(String fingerprint, X509Credential credential) {
+
+        try {
+            certificateDigests.put(fingerprint, getDigest(credential.getEntityCertificate().getEncoded()));
+        } catch (CertificateEncodingException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to encode the certificate: " + credential.getEntityCertificate().getSubjectDN() +
+                        ". It will not be looked up by the KeyInfo of the signatures.", e);
+            }
+        }
+    }
+
+    /**
+     * Get the digests of the certificates embedded in the X509Data of the given KeyInfo. The embedded certificates
+     * are only digested, not parsed.
+     */
+    private Set<String> getEmbeddedCertificateDigests(KeyInfo keyInfo) {
+
+        if (keyInfo == null) {
+            return Collections.emptySet();
+        }
+        Set<String> digests = new HashSet<>();
+        for (X509Data x509Data : keyInfo.getX509Datas()) {
+            for (X509Certificate x509Certificate : x509Data.getX509Certificates()) {
+                if (StringUtils.isNotBlank(x509Certificate.getValue())) {
+                    digests.add(getDigest(Base64.decodeBase64(x509Certificate.getValue())));
+                }
+            }
+        }
+        return digests;
+    }
+
+    private String getIdPKey(String tenantDomain, IdentityProvider identityProvider) {
+
+        return tenantDomain + ":" + identityProvider.getIdentityProviderName();
+    }
+
+    private String getFingerprint(String certificateValue) {
+
+        return getDigest(certificateValue.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String getDigest(byte[] value) {
+
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance(FINGERPRINT_ALGORITHM);
+            return Hex.encodeHexString(messageDigest.digest(value));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is available in every Java platform.
+            throw new IllegalStateException("Unable to find the " + FINGERPRINT_ALGORITHM + " algorithm.", e);
+        }
+    }
+
+    /**
+     * Signature validation statistics of an identity provider.
+     */
+    public static class ValidationStats {
+
+        private final AtomicLong validationCount = new AtomicLong();
+        private final AtomicLong fallbackCount = new AtomicLong();
+        private volatile X509Credential lastVerifiedCredential;
+
+        /**
+         * Get the number of signatures verified.
+         *
+         * @return Number of signatures verified.
+         */
+        public long getValidationCount() {
+
+            return validationCount.get();
+        }
+
+        /**
+         * Get the number of signatures which were not verified by the first certificate tried.
+         *
+         * @return Number of signatures verified after falling back to another certificate.
+         */
+        public long getFallbackCount() {
+
+            return fallbackCount.get();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.base.ServerConfiguration;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+
+/**
+ * Holder of the separate keystore configured under Security.SAMLSignKeyStore to sign the SAML messages of the super
+ * tenant. The keystore is loaded once even when many threads ask for it at the same time. The keystore file is then
+ * watched for changes and a changed keystore is swapped in atomically. Threads which are signing with the previous
+ * keystore are not blocked by a reload.
+ */
+public class SAMLSignKeyStoreHolder {
+
+    private static final Log log = LogFactory.getLog(SAMLSignKeyStoreHolder.class);
+
+    private static final String WATCHER_THREAD_NAME = "SAMLSignKeyStoreWatcher";
+
+    private static final SAMLSignKeyStoreHolder INSTANCE = new SAMLSignKeyStoreHolder();
+
+    private final Object lock = new Object();
+    private volatile KeyStore keyStore;
+    private WatchService watchService;
+
+    private SAMLSignKeyStoreHolder() {
+
+    }
+
+    public static SAMLSignKeyStoreHolder getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the configured sign keystore. The keystore is loaded from the file system on the first call.
+     *
+     * @return Sign keystore.
+     * @throws SAMLSSOException If the keystore cannot be loaded.
+     */
+    public KeyStore getKeyStore() throws SAMLSSOException {
+
+        KeyStore currentKeyStore = keyStore;
+        if (currentKeyStore == null) {
+            synchronized (lock) {
+                currentKeyStore = keyStore;
+                if (currentKeyStore == null) {
+                    String keyStoreLocation = ServerConfiguration.getInstance().getFirstProperty(
+                            X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_LOCATION);
+                    currentKeyStore = loadKeyStore(keyStoreLocation);
+                    keyStore = currentKeyStore;
+                    startWatcher(keyStoreLocation);
+                }
+            }
+        }
+        return currentKeyStore;
+    }
+
+    /**
+     * Stop watching the keystore file and discard the loaded keystore.
+     */
+    public void shutdown() {
+
+        synchronized (lock) {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    log.warn("Error while closing the watch service of the SAML sign keystore.", e);
+                }
+                watchService = null;
+            }
+            keyStore = null;
+        }
+    }
+
+    private KeyStore loadKeyStore(String keyStoreLocation) throws SAMLSSOException {
+
+        try (FileInputStream is = new FileInputStream(keyStoreLocation)) {
+            String keyStoreType = ServerConfiguration.getInstance().getFirstProperty(
+                    X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_TYPE);
+            KeyStore signKeyStore = KeyStore.getInstance(keyStoreType);
+
+            char[] keyStorePassword = ServerConfiguration.getInstance().getFirstProperty(
+                    X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_PASSWORD).toCharArray();
+            signKeyStore.load(is, keyStorePassword);
+            return signKeyStore;
+        } catch (FileNotFoundException e) {
+            throw new SAMLSSOException(ErrorMessages.UNABLE_TO_LOCATE_KEYSTORE.getCode(),
+                    ErrorMessages.UNABLE_TO_LOCATE_KEYSTORE.getMessage(), e);
+        } catch (IOException e) {
+            throw new SAMLSSOException(ErrorMessages.UNABLE_TO_READ_KEYSTORE.getCode(),
+                    ErrorMessages.UNABLE_TO_READ_KEYSTORE.getMessage(), e);
+        } catch (CertificateException e) {
+            throw new SAMLSSOException(ErrorMessages.UNABLE_TO_READ_CERTIFICATE.getCode(),
+                    ErrorMessages.UNABLE_TO_READ_CERTIFICATE.getMessage(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SAMLSSOException(ErrorMessages.INVALID_ALGORITHM.getCode(),
+                    ErrorMessages.INVALID_ALGORITHM.getMessage(), e);
+        } catch (KeyStoreException e) {
+            throw new SAMLSSOException(ErrorMessages.UNABLE_TO_LOAD_KEYSTORE.getCode(),
+                    ErrorMessages.UNABLE_TO_LOAD_KEYSTORE.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start a daemon thread which reloads the keystore when the keystore file is created or modified.
+     */
+    private void startWatcher(String keyStoreLocation) {
+
+        Path keyStorePath = Paths.get(keyStoreLocation).toAbsolutePath();
+        Path keyStoreDirectory = keyStorePath.getParent();
+        if (keyStoreDirectory == null) {
+            return;
+        }
+        try {
+            WatchService newWatchService = keyStoreDirectory.getFileSystem().newWatchService();
+            keyStoreDirectory.register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = newWatchService;
+        } catch (IOException e) {
+            log.warn("Unable to watch the SAML sign keystore: " + keyStorePath + " for changes. A changed keystore " +
+                    "will not be picked up until the server is restarted.", e);
+            return;
+        }
+
+        final WatchService keyStoreWatchService = watchService;
+        Thread watcherThread = new Thread(() -> watch(keyStoreWatchService, keyStorePath), WATCHER_THREAD_NAME);
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private void watch(WatchService keyStoreWatchService, Path keyStorePath) {
+
+        try {
+            while (true) {
+                WatchKey watchKey = keyStoreWatchService.take();
+                boolean isKeyStoreChanged = false;
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    if (keyStorePath.getFileName().equals(event.context())) {
+                        isKeyStoreChanged = true;
+                    }
+                }
+                if (isKeyStoreChanged) {
+                    reload(keyStoreWatchService, keyStorePath);
+                }
+                if (!watchKey.reset()) {
+                    log.warn("SAML sign keystore directory: " + keyStorePath.getParent() + " is no longer " +
+                            "accessible. A changed keystore will not be picked up until the server is restarted.");
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Stopped watching the SAML sign keystore: " + keyStorePath);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void reload(WatchService keyStoreWatchService, Path keyStorePath) {
+
+        try {
+            KeyStore reloadedKeyStore = loadKeyStore(keyStorePath.toString());
+            synchronized (lock) {
+                if (watchService != keyStoreWatchService) {
+                    // The holder has been shut down while the keystore was being loaded.
+                    return;
+                }
+                keyStore = reloadedKeyStore;
+                // Credentials loaded from the previous keystore are not cached after this.
+                X509CredentialCache.getInstance().invalidate(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+            }
+            log.info("Reloaded the SAML sign keystore: " + keyStorePath);
+        } catch (SAMLSSOException e) {
+            // The file may still be being written. The next modification event triggers another reload.
+            log.error("Error while reloading the SAML sign keystore: " + keyStorePath + ". The previously loaded " +
+                    "keystore will be used.", e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.opensaml.security.x509.X509Credential;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the tenant signing credentials used to sign outbound SAML messages and to decrypt encrypted assertions.
+ * Entries are keyed by tenant domain, the number of cached tenants is bounded and each entry expires after the
+ * configured timeout. Entries of a tenant can also be invalidated explicitly when its keystore changes. Every
+ * invalidation starts a new generation of the cache, and a credential loaded during an earlier generation is not
+ * cached, so that a load which read the previous keystore cannot put a stale credential back after an invalidation.
+ */
+public class X509CredentialCache {
+
+    private static final Log log = LogFactory.getLog(X509CredentialCache.class);
+
+    private static final long DEFAULT_MAX_SIZE = 100;
+    private static final long DEFAULT_TIMEOUT_IN_SECONDS = 900;
+
+    private static final X509CredentialCache INSTANCE = new X509CredentialCache();
+
+    private final ConcurrentMap<String, CacheEntry> credentials = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final long maxSize;
+    private final long timeoutInMillis;
+    private volatile long generation;
+
+    private X509CredentialCache() {
+
+        maxSize = SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.SIGNING_CREDENTIAL_CACHE_MAX_SIZE, DEFAULT_MAX_SIZE);
+        timeoutInMillis = TimeUnit.SECONDS.toMillis(SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.SIGNING_CREDENTIAL_CACHE_TIMEOUT, DEFAULT_TIMEOUT_IN_SECONDS));
+    }
+
+    public static X509CredentialCache getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the signing credential of the given tenant. The credential is loaded from the tenant keystore only if it is
+     * not already cached or the cached entry has expired.
+     *
+     * @param tenantDomain Tenant domain.
+     * @return Signing credential of the tenant.
+     * @throws SAMLSSOException If the private key or the certificate of the tenant cannot be loaded.
+     */
+    public X509Credential getCredential(String tenantDomain) throws SAMLSSOException {
+
+        long currentTime = System.currentTimeMillis();
+        CacheEntry entry = credentials.get(tenantDomain);
+        if (entry != null && !entry.isExpired(currentTime)) {
+            hitCount.incrementAndGet();
+            return entry.credential;
+        }
+
+        missCount.incrementAndGet();
+        long loadGeneration = generation;
+        X509Credential credential = new X509CredentialImpl(tenantDomain, null);
+        if (maxSize > 0) {
+            long expiryTime = timeoutInMillis > 0 ? currentTime + timeoutInMillis : Long.MAX_VALUE;
+            put(tenantDomain, new CacheEntry(credential, expiryTime), currentTime, loadGeneration);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded the signing credential of tenant: " + tenantDomain + " into the cache.");
+        }
+        return credential;
+    }
+
+    /**
+     * Remove the cached signing credential of the given tenant. This should be called when the keystore of the
+     * tenant changes.
+     *
+     * @param tenantDomain Tenant domain.
+     */
+    public synchronized void invalidate(String tenantDomain) {
+
+        generation++;
+        if (credentials.remove(tenantDomain) != null && log.isDebugEnabled()) {
+            log.debug("Invalidated the cached signing credential of tenant: " + tenantDomain);
+        }
+    }
+
+    /**
+     * Remove all the cached signing credentials.
+     */
+    public synchronized void invalidateAll() {
+
+        generation++;
+        credentials.clear();
+    }
+
+    public long getHitCount() {
+
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+
+        return missCount.get();
+    }
+
+    public int size() {
+
+        return credentials.size();
+    }
+
+    /**
+     * Add an entry to the cache. Entries are only added while holding the lock, so that the size check, the eviction
+     * and the insertion are atomic and concurrent loads cannot grow the cache beyond its maximum size. The entry is
+     * dropped if the cache has been invalidated since the credential was loaded. Lookups do not take the lock.
+     */
+    private synchronized void put(String tenantDomain, CacheEntry entry, long currentTime, long loadGeneration) {
+
+        if (loadGeneration != generation) {
+            if (log.isDebugEnabled()) {
+                log.debug("Signing credential cache was invalidated while the credential of tenant: " +
+                        tenantDomain + " was being loaded. The credential is not cached.");
+            }
+            return;
+        }
+        if (!credentials.containsKey(tenantDomain) && credentials.size() >= maxSize) {
+            evict(currentTime);
+        }
+        credentials.put(tenantDomain, entry);
+    }
+
+    /**
+     * Remove the expired entries. If the cache is still full, remove the entry which expires first.
+     */
+    private void evict(long currentTime) {
+
+        String eldestTenantDomain = null;
+        long eldestExpiryTime = Long.MAX_VALUE;
+        Iterator<Map.Entry<String, CacheEntry>> iterator = credentials.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CacheEntry> cacheEntry = iterator.next();
+            if (cacheEntry.getValue().isExpired(currentTime)) {
+                iterator.remove();
+            } else if (cacheEntry.getValue().expiryTime <= eldestExpiryTime) {
+                eldestExpiryTime = cacheEntry.getValue().expiryTime;
+                eldestTenantDomain = cacheEntry.getKey();
+            }
+        }
+        if (credentials.size() >= maxSize && eldestTenantDomain != null) {
+            credentials.remove(eldestTenantDomain);
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final X509Credential credential;
+        private final long expiryTime;
+
+        private CacheEntry(X509Credential credential, long expiryTime) {
+
+            this.credential = credential;
+            this.expiryTime = expiryTime;
+        }
+
+        private boolean isExpired(long currentTime) {
+
+            return currentTime >= expiryTime;
+        }
+    }
+}
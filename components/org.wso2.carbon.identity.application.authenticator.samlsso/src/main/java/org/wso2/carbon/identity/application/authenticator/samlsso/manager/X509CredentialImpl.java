@@ -36,9 +36,6 @@ import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorC
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationManagementUtil;
 import org.wso2.carbon.user.api.UserStoreException;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.security.Key;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
@@ -65,7 +62,6 @@ public class X509CredentialImpl implements X509Credential {
     private X509Certificate entityCertificate = null;
     private String entityId = "";
 
-    private static KeyStore superTenantSignKeyStore = null;
     private static final Log log = LogFactory.getLog(X509CredentialImpl.class);
 
     public static final String SECURITY_SAML_SIGN_KEY_STORE_LOCATION = "Security.SAMLSignKeyStore.Location";
@@ -136,31 +132,7 @@ public class X509CredentialImpl implements X509Credential {
                         }
 
                         try {
-                            if (superTenantSignKeyStore == null) {
-
-                                String keyStoreLocation = ServerConfiguration.getInstance().getFirstProperty(
-                                        SECURITY_SAML_SIGN_KEY_STORE_LOCATION);
-                                try (FileInputStream is = new FileInputStream(keyStoreLocation)) {
-                                    String keyStoreType = ServerConfiguration.getInstance().getFirstProperty(
-                                            SECURITY_SAML_SIGN_KEY_STORE_TYPE);
-                                    KeyStore keyStore = KeyStore.getInstance(keyStoreType);
-
-                                    char[] keyStorePassword = ServerConfiguration.getInstance().getFirstProperty(
-                                            SECURITY_SAML_SIGN_KEY_STORE_PASSWORD).toCharArray();
-                                    keyStore.load(is, keyStorePassword);
-
-                                    superTenantSignKeyStore = keyStore;
-                                } catch (FileNotFoundException e) {
-                                    throw new SAMLSSOException(ErrorMessages.UNABLE_TO_LOCATE_KEYSTORE.getCode(),
-                                            ErrorMessages.UNABLE_TO_LOCATE_KEYSTORE.getMessage(), e);
-                                } catch (IOException e) {
-                                    throw new SAMLSSOException(ErrorMessages.UNABLE_TO_READ_KEYSTORE.getCode(),
-                                            ErrorMessages.UNABLE_TO_READ_KEYSTORE.getMessage(), e);
-                                } catch (CertificateException e) {
-                                    throw new SAMLSSOException(ErrorMessages.UNABLE_TO_READ_CERTIFICATE.getCode(),
-                                            ErrorMessages.UNABLE_TO_READ_CERTIFICATE.getMessage(), e);
-                                }
-                            }
+                            KeyStore superTenantSignKeyStore = SAMLSignKeyStoreHolder.getInstance().getKeyStore();
 
                             String keyAlias = ServerConfiguration.getInstance().getFirstProperty(
                                     SECURITY_SAML_SIGN_KEY_STORE_KEY_ALIAS);
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import net.shibboleth.utilities.java.support.xml.SerializeSupport;
+import org.apache.commons.codec.binary.Base64OutputStream;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Single pass encoder of the SAML messages of the HTTP Redirect binding. The DOM of the message is serialized straight
+ * into a raw DEFLATE stream, which is base64 encoded and URL encoded while it is written, so that neither the
+ * serialized nor the deflated message is held in full. The Deflaters are pooled together with their output buffers.
+ */
+final class SAMLMessageDeflater {
+
+    private static final int MAX_POOLED_DEFLATERS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int BUFFER_SIZE = 4096;
+    private static final byte[] NO_LINE_SEPARATOR = new byte[0];
+
+    private static final BlockingQueue<PooledDeflater> DEFLATERS = new ArrayBlockingQueue<>(MAX_POOLED_DEFLATERS);
+
+    private SAMLMessageDeflater() {
+
+    }
+
+    /**
+     * Serialize, deflate, base64 encode and URL encode the given SAML message.
+     *
+     * @param node DOM of the SAML message.
+     * @return Encoded SAML message, which can be used as a query parameter value.
+     * @throws IOException If the message cannot be deflated or encoded.
+     */
+    static String encode(Node node) throws IOException {
+
+        StringBuilder encodedMessage = new StringBuilder();
+        try (OutputStream outputStream = new DeflatingOutputStream(new Base64OutputStream(
+                new URLEncodingOutputStream(encodedMessage), true, 0, NO_LINE_SEPARATOR))) {
+            SerializeSupport.writeNode(node, outputStream);
+        }
+        return encodedMessage.toString();
+    }
+
+    private static PooledDeflater borrow() {
+
+        PooledDeflater deflater = DEFLATERS.poll();
+        return deflater != null ? deflater : new PooledDeflater(new Deflater(Deflater.DEFLATED, true));
+    }
+
+    private static void release(PooledDeflater deflater) {
+
+        deflater.deflater.reset();
+        if (!DEFLATERS.offer(deflater)) {
+            deflater.deflater.end();
+        }
+    }
+
+    /**
+     * Deflater of raw DEFLATE data along with the buffer of its output.
+     */
+    private static class PooledDeflater {
+
+        private final Deflater deflater;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        PooledDeflater(Deflater deflater) {
+
+            this.deflater = deflater;
+        }
+    }
+
+    /**
+     * Stream which deflates the bytes written to it with a pooled Deflater. The Deflater is given back when the stream
+     * is closed.
+     */
+    private static class DeflatingOutputStream extends OutputStream {
+
+        private final OutputStream outputStream;
+        private final byte[] singleByte = new byte[1];
+        private PooledDeflater deflater = borrow();
+
+        DeflatingOutputStream(OutputStream outputStream) {
+
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+
+            singleByte[0] = (byte) b;
+            write(singleByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+
+            if (deflater == null) {
+                throw new IOException("Stream closed");
+            }
+            if (length == 0) {
+                return;
+            }
+            deflater.deflater.setInput(bytes, offset, length);
+            while (!deflater.deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (deflater == null) {
+                return;
+            }
+            try {
+                deflater.deflater.finish();
+                while (!deflater.deflater.finished()) {
+                    deflate();
+                }
+                outputStream.close();
+            } finally {
+                release(deflater);
+                deflater = null;
+            }
+        }
+
+        private void deflate() throws IOException {
+
+            int count = deflater.deflater.deflate(deflater.buffer, 0, deflater.buffer.length);
+            if (count > 0) {
+                outputStream.write(deflater.buffer, 0, count);
+            }
+        }
+    }
+
+    /**
+     * Stream which URL encodes the base64 characters written to it into the given StringBuilder, the same way as
+     * {@link java.net.URLEncoder}.
+     */
+    private static class URLEncodingOutputStream extends OutputStream {
+
+        private final StringBuilder encodedMessage;
+
+        URLEncodingOutputStream(StringBuilder encodedMessage) {
+
+            this.encodedMessage = encodedMessage;
+        }
+
+        @Override
+        public void write(int b) {
+
+            switch (b) {
+                case '+':
+                    encodedMessage.append("%2B");
+                    break;
+                case '/':
+                    encodedMessage.append("%2F");
+                    break;
+                case '=':
+                    encodedMessage.append("%3D");
+                    break;
+                default:
+                    encodedMessage.append((char) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+
+            for (int i = offset; i < offset + length; i++) {
+                write(bytes[i]);
+            }
+        }
+    }
+}
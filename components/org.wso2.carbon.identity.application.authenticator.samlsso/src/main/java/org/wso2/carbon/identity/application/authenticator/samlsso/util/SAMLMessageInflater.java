@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Streaming inflate stage of the SAML messages of the HTTP Redirect binding. The messages are inflated while they are
+ * read, straight into the stream given to the parser, instead of into an intermediate buffer of a fixed size. The
+ * Inflaters of raw DEFLATE data, which is what the binding mandates, are pooled together with their input buffers.
+ * Messages which are zlib wrapped are still accepted, with an Inflater which is not pooled. Reading more than the
+ * given maximum number of inflated bytes fails with a {@link SAMLMessageSizeExceededException}, which guards against
+ * inflation bombs.
+ */
+final class SAMLMessageInflater {
+
+    private static final int MAX_POOLED_INFLATERS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final int BUFFER_SIZE = 4096;
+    private static final int ZLIB_HEADER_LENGTH = 2;
+    private static final int ZLIB_DEFLATE_METHOD = 8;
+
+    private static final BlockingQueue<PooledInflater> INFLATERS = new ArrayBlockingQueue<>(MAX_POOLED_INFLATERS);
+
+    private SAMLMessageInflater() {
+
+    }
+
+    /**
+     * Get a stream which inflates the deflated SAML message read from the given stream.
+     *
+     * @param deflatedStream Stream of the deflated SAML message.
+     * @param maxSize        Maximum number of inflated bytes which can be read.
+     * @return Stream of the inflated SAML message.
+     */
+    static InputStream inflate(InputStream deflatedStream, long maxSize) {
+
+        return new InflatingInputStream(deflatedStream, maxSize);
+    }
+
+    private static PooledInflater borrow() {
+
+        PooledInflater inflater = INFLATERS.poll();
+        return inflater != null ? inflater : new PooledInflater(new Inflater(true));
+    }
+
+    private static void release(PooledInflater inflater) {
+
+        inflater.inflater.reset();
+        if (!INFLATERS.offer(inflater)) {
+            inflater.inflater.end();
+        }
+    }
+
+    private static boolean isZlibHeader(byte[] header) {
+
+        int cmf = header[0] & 0xff;
+        int flg = header[1] & 0xff;
+        return (cmf & 0x0f) == ZLIB_DEFLATE_METHOD && (cmf << 8 | flg) % 31 == 0;
+    }
+
+    /**
+     * Inflater of raw DEFLATE data along with the buffer of its input.
+     */
+    private static class PooledInflater {
+
+        private final Inflater inflater;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        PooledInflater(Inflater inflater) {
+
+            this.inflater = inflater;
+        }
+    }
+
+    /**
+     * Stream which inflates the deflated stream while it is read. The Inflater is taken when the stream is first read,
+     * once the first bytes of the deflated stream show whether it is zlib wrapped, and it is given back as soon as the
+     * end of the deflated data is reached, or when the stream is closed.
+     */
+    private static class InflatingInputStream extends InputStream {
+
+        private final InputStream deflatedStream;
+        private final long maxSize;
+        private final byte[] singleByte = new byte[1];
+        private PooledInflater inflater;
+        private boolean pooled;
+        private boolean finished;
+        private boolean closed;
+        private long size;
+
+        InflatingInputStream(InputStream deflatedStream, long maxSize) {
+
+            this.deflatedStream = deflatedStream;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (length == 0) {
+                return 0;
+            }
+            if (finished) {
+                return -1;
+            }
+            if (inflater == null) {
+                start();
+            }
+            try {
+                while (true) {
+                    int count = inflater.inflater.inflate(buffer, offset, length);
+                    if (count > 0) {
+                        size += count;
+                        if (size > maxSize) {
+                            throw new SAMLMessageSizeExceededException(maxSize);
+                        }
+                        return count;
+                    }
+                    if (inflater.inflater.finished() || inflater.inflater.needsDictionary()) {
+                        finish();
+                        return -1;
+                    }
+                    if (inflater.inflater.needsInput()) {
+                        int inputLength = deflatedStream.read(inflater.buffer, 0, inflater.buffer.length);
+                        if (inputLength == -1) {
+                            throw new EOFException("Unexpected end of the deflated SAML message.");
+                        }
+                        inflater.inflater.setInput(inflater.buffer, 0, inputLength);
+                    }
+                }
+            } catch (DataFormatException e) {
+                String message = e.getMessage();
+                throw new ZipException(message != null ? message : "Invalid deflated SAML message.");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (!closed) {
+                closed = true;
+                finish();
+                deflatedStream.close();
+            }
+        }
+
+        private void start() throws IOException {
+
+            byte[] header = new byte[ZLIB_HEADER_LENGTH];
+            int headerLength = 0;
+            while (headerLength < header.length) {
+                int count = deflatedStream.read(header, headerLength, header.length - headerLength);
+                if (count == -1) {
+                    break;
+                }
+                headerLength += count;
+            }
+            if (headerLength == header.length && isZlibHeader(header)) {
+                inflater = new PooledInflater(new Inflater());
+            } else {
+                inflater = borrow();
+                pooled = true;
+            }
+            inflater.inflater.setInput(header, 0, headerLength);
+        }
+
+        private void finish() {
+
+            finished = true;
+            if (inflater != null) {
+                if (pooled) {
+                    release(inflater);
+                } else {
+                    inflater.inflater.end();
+                }
+                inflater = null;
+            }
+        }
+    }
+}
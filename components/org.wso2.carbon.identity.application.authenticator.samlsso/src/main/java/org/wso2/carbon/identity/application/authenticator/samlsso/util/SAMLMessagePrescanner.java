@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import org.opensaml.saml.common.xml.SAMLConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming pre-validation of inbound SAML messages, which runs before the DOM of the message is built. The message is
+ * read once with StAX, and it is rejected if it is larger, deeper or has more elements than allowed, if it has a DTD,
+ * or if it has the shape of an XML signature wrapping attack: a samlp:Response nested in the message, or more than one
+ * saml:Assertion. The signature wrapping checks are the same as the ones of
+ * {@code DefaultSAML2SSOManager#validateResponseFormat}, which still runs on the unmarshalled message.
+ */
+public class SAMLMessagePrescanner {
+
+    private static final long DEFAULT_MAX_SIZE = 5 * 1024 * 1024;
+    private static final long DEFAULT_MAX_DEPTH = 64;
+    private static final long DEFAULT_MAX_ELEMENT_COUNT = 50000;
+    private static final String RESPONSE = "Response";
+    private static final String ASSERTION = "Assertion";
+
+    private static volatile XMLInputFactory xmlInputFactory;
+
+    private SAMLMessagePrescanner() {
+
+    }
+
+    /**
+     * Pre-validate the SAML message read from the given stream. The stream is read only up to the maximum size of a
+     * SAML message.
+     *
+     * @param inputStream Stream of the SAML message.
+     * @throws SAMLSSOException If the SAML message is rejected.
+     */
+    public static void prescan(InputStream inputStream) throws SAMLSSOException {
+
+        long maxSize = getMaxMessageSize();
+        try {
+            prescan(getXMLInputFactory().createXMLStreamReader(new SizeLimitedInputStream(inputStream, maxSize)));
+        } catch (XMLStreamException e) {
+            if (isSizeLimitExceeded(e)) {
+                throw getLimitExceededException("size", maxSize);
+            }
+            throw new SAMLSSOException(ErrorMessages.UNMARSHALLING_SAML_REQUEST_ENCODED_STRING_FAILED.getCode(),
+                    ErrorMessages.UNMARSHALLING_SAML_REQUEST_ENCODED_STRING_FAILED.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the maximum size of an inbound SAML message.
+     *
+     * @return Maximum size in bytes.
+     */
+    static long getMaxMessageSize() {
+
+        return SSOUtils.getAuthenticatorConfigParameter(SSOConstants.ServerConfig.SAML_MESSAGE_MAX_SIZE,
+                DEFAULT_MAX_SIZE);
+    }
+
+    static SAMLSSOException getLimitExceededException(String limit, long maxValue) {
+
+        return new SAMLSSOException(ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getCode(),
+                ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getMessage() + " Maximum " + limit + ": " + maxValue);
+    }
+
+    private static void prescan(XMLStreamReader reader) throws XMLStreamException, SAMLSSOException {
+
+        long maxDepth = SSOUtils.getAuthenticatorConfigParameter(SSOConstants.ServerConfig.SAML_MESSAGE_MAX_DEPTH,
+                DEFAULT_MAX_DEPTH);
+        long maxElementCount = SSOUtils.getAuthenticatorConfigParameter(
+                SSOConstants.ServerConfig.SAML_MESSAGE_MAX_ELEMENT_COUNT, DEFAULT_MAX_ELEMENT_COUNT);
+        int depth = 0;
+        int elementCount = 0;
+        int assertionCount = 0;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.DTD) {
+                    throw new SAMLSSOException(ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getCode(),
+                            "SAML message must not have a document type declaration.");
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    elementCount++;
+                    if (depth > maxDepth) {
+                        throw getLimitExceededException("depth", maxDepth);
+                    }
+                    if (elementCount > maxElementCount) {
+                        throw getLimitExceededException("number of elements", maxElementCount);
+                    }
+                    // The root element is not checked, as in DefaultSAML2SSOManager#validateResponseFormat.
+                    if (depth == 1) {
+                        continue;
+                    }
+                    if (RESPONSE.equals(reader.getLocalName()) &&
+                            SAMLConstants.SAML20P_NS.equals(reader.getNamespaceURI())) {
+                        throw new SAMLSSOException(ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getCode(),
+                                ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getMessage());
+                    }
+                    if (ASSERTION.equals(reader.getLocalName()) &&
+                            SAMLConstants.SAML20_NS.equals(reader.getNamespaceURI()) && ++assertionCount > 1) {
+                        throw new SAMLSSOException(
+                                ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getCode(),
+                                ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getMessage());
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean isSizeLimitExceeded(XMLStreamException e) {
+
+        // StAX implementations wrap the IOExceptions of the stream either as the nested exception or as the cause.
+        if (e.getNestedException() instanceof SAMLMessageSizeExceededException) {
+            return true;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SAMLMessageSizeExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static XMLInputFactory getXMLInputFactory() {
+
+        if (xmlInputFactory == null) {
+            synchronized (SAMLMessagePrescanner.class) {
+                if (xmlInputFactory == null) {
+                    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+                    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+                    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+                    xmlInputFactory = inputFactory;
+                }
+            }
+        }
+        return xmlInputFactory;
+    }
+
+    /**
+     * Stream which fails once more than the given number of bytes are read from it.
+     */
+    private static class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long maxSize;
+        private long size;
+
+        SizeLimitedInputStream(InputStream inputStream, long maxSize) {
+
+            super(inputStream);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                count(count);
+            }
+            return count;
+        }
+
+        private void count(int count) throws SAMLMessageSizeExceededException {
+
+            size += count;
+            if (size > maxSize) {
+                throw new SAMLMessageSizeExceededException(maxSize);
+            }
+        }
+    }
+
+}
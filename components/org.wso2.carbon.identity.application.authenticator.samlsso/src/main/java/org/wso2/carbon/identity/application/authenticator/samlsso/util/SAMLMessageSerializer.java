@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Node;
+import org.w3c.dom.bootstrap.DOMImplementationRegistry;
+import org.w3c.dom.ls.DOMImplementationLS;
+import org.w3c.dom.ls.LSException;
+import org.w3c.dom.ls.LSOutput;
+import org.w3c.dom.ls.LSSerializer;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Serializer of the DOM of marshalled SAML messages. The DOM Load and Save implementation is resolved once, when the
+ * bundle is activated or when the first message is serialized, instead of scanning the DOM implementation registry
+ * for every message. LSSerializers are not thread safe, so they are pooled.
+ */
+public final class SAMLMessageSerializer {
+
+    private static final Log log = LogFactory.getLog(SAMLMessageSerializer.class);
+
+    private static final int MAX_POOLED_SERIALIZERS = Runtime.getRuntime().availableProcessors() * 2;
+    private static final String LOAD_AND_SAVE_FEATURE = "LS";
+    private static final String DOCUMENT_BUILDER_FACTORY = "javax.xml.parsers.DocumentBuilderFactory";
+    private static final String XERCES_DOCUMENT_BUILDER_FACTORY = "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl";
+
+    private static final BlockingQueue<LSSerializer> SERIALIZERS = new ArrayBlockingQueue<>(MAX_POOLED_SERIALIZERS);
+    private static volatile DOMImplementationLS domImplementationLS;
+
+    private SAMLMessageSerializer() {
+
+    }
+
+    /**
+     * Resolve the DOM Load and Save implementation, so that it is not resolved while serving requests.
+     *
+     * @throws SAMLSSOException If no DOM Load and Save implementation is available.
+     */
+    public static void init() throws SAMLSSOException {
+
+        getDOMImplementationLS();
+    }
+
+    /**
+     * Serialize the given node into the given stream, encoded with UTF-8.
+     *
+     * @param node         Node to be serialized.
+     * @param outputStream Stream to write the serialized node to.
+     * @throws SAMLSSOException If the node cannot be serialized.
+     */
+    public static void serialize(Node node, OutputStream outputStream) throws SAMLSSOException {
+
+        LSOutput output = getDOMImplementationLS().createLSOutput();
+        output.setByteStream(outputStream);
+        serialize(node, output);
+    }
+
+    /**
+     * Serialize the given node into the given writer.
+     *
+     * @param node   Node to be serialized.
+     * @param writer Writer to write the serialized node to.
+     * @throws SAMLSSOException If the node cannot be serialized.
+     */
+    public static void serialize(Node node, Writer writer) throws SAMLSSOException {
+
+        LSOutput output = getDOMImplementationLS().createLSOutput();
+        output.setCharacterStream(writer);
+        serialize(node, output);
+    }
+
+    private static void serialize(Node node, LSOutput output) throws SAMLSSOException {
+
+        LSSerializer serializer = SERIALIZERS.poll();
+        if (serializer == null) {
+            serializer = getDOMImplementationLS().createLSSerializer();
+        }
+        try {
+            serializer.write(node, output);
+        } catch (LSException e) {
+            log.error("Error Serializing the SAML Response");
+            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(), "Error Serializing the SAML Response", e);
+        }
+        // A serializer which failed is not given back, as its state is not known.
+        SERIALIZERS.offer(serializer);
+    }
+
+    private static DOMImplementationLS getDOMImplementationLS() throws SAMLSSOException {
+
+        if (domImplementationLS == null) {
+            synchronized (SAMLMessageSerializer.class) {
+                if (domImplementationLS == null) {
+                    // Set once, for the DocumentBuilderFactory used by the OpenSAML marshallers.
+                    System.setProperty(DOCUMENT_BUILDER_FACTORY, XERCES_DOCUMENT_BUILDER_FACTORY);
+                    domImplementationLS = resolveDOMImplementationLS();
+                }
+            }
+        }
+        return domImplementationLS;
+    }
+
+    private static DOMImplementationLS resolveDOMImplementationLS() throws SAMLSSOException {
+
+        try {
+            DOMImplementationLS implementation = (DOMImplementationLS) DOMImplementationRegistry.newInstance()
+                    .getDOMImplementation(LOAD_AND_SAVE_FEATURE);
+            if (implementation == null) {
+                throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(),
+                        "No DOM Load and Save implementation is available.");
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Using the DOM Load and Save implementation: " + implementation.getClass().getName());
+            }
+            return implementation;
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(),
+                    "Error while resolving the DOM Load and Save implementation.", e);
+        }
+    }
+}
@@ -54,6 +54,13 @@ public class SSOConstants {
     public static final String SECURITY_KEYSTORE_LOCATION = "Security.KeyStore.Location";
     public static final String SECURITY_KEYSTORE_TYPE = "Security.KeyStore.Type";
 
+    public static final String ARTIFACT_RESOLVE_MAX_CONNECTIONS = "ArtifactResolveMaxConnections";
+    public static final String ARTIFACT_RESOLVE_CONNECT_TIMEOUT = "ArtifactResolveConnectTimeout";
+    public static final String ARTIFACT_RESOLVE_SOCKET_TIMEOUT = "ArtifactResolveSocketTimeout";
+    public static final String ARTIFACT_RESOLVE_CONNECTION_REQUEST_TIMEOUT = "ArtifactResolveConnectionRequestTimeout";
+    public static final String ARTIFACT_RESOLVE_MAX_CONCURRENT_CALLS = "ArtifactResolveMaxConcurrentCalls";
+    public static final String ARTIFACT_RESOLVE_MAX_WAIT_TIME = "ArtifactResolveMaxWaitTime";
+
     public static final String SAML_SLO_URL = "identity/saml/slo";
     public static final Pattern SAML_SLO_ENDPOINT_URL_PATTERN = Pattern.compile("(.*)/identity/saml/slo/?");
 
@@ -83,5 +90,35 @@ public class SSOConstants {
 
         public static final String HTTPS_PROXY_HOST = "HTTPS_PROXY_HOST";
         public static final String HTTPS_PROXY_PORT = "HTTPS_PROXY_PORT";
+
+        public static final String SIGNING_CREDENTIAL_CACHE_MAX_SIZE = "SigningCredentialCacheMaxSize";
+        public static final String SIGNING_CREDENTIAL_CACHE_TIMEOUT = "SigningCredentialCacheTimeout";
+
+        public static final String ARTIFACT_RESOLUTION_MAX_CONNECTIONS = "ArtifactResolutionMaxConnections";
+        public static final String ARTIFACT_RESOLUTION_MAX_CONNECTIONS_PER_ROUTE =
+                "ArtifactResolutionMaxConnectionsPerRoute";
+        public static final String ARTIFACT_RESOLUTION_KEEP_ALIVE_TIMEOUT = "ArtifactResolutionKeepAliveTimeout";
+        public static final String ARTIFACT_RESOLUTION_IDLE_CONNECTION_TIMEOUT =
+                "ArtifactResolutionIdleConnectionTimeout";
+        public static final String ARTIFACT_RESOLUTION_THREAD_POOL_SIZE = "ArtifactResolutionThreadPoolSize";
+        public static final String ARTIFACT_RESOLUTION_QUEUE_SIZE = "ArtifactResolutionQueueSize";
+        public static final String ARTIFACT_RESOLUTION_CONNECT_TIMEOUT = "ArtifactResolutionConnectTimeout";
+        public static final String ARTIFACT_RESOLUTION_SOCKET_TIMEOUT = "ArtifactResolutionSocketTimeout";
+        public static final String ARTIFACT_RESOLUTION_CONNECTION_REQUEST_TIMEOUT =
+                "ArtifactResolutionConnectionRequestTimeout";
+        public static final String ARTIFACT_RESOLUTION_CIRCUIT_BREAKER_FAILURE_THRESHOLD =
+                "ArtifactResolutionCircuitBreakerFailureThreshold";
+        public static final String ARTIFACT_RESOLUTION_CIRCUIT_BREAKER_SLOW_CALL_THRESHOLD =
+                "ArtifactResolutionCircuitBreakerSlowCallThreshold";
+        public static final String ARTIFACT_RESOLUTION_CIRCUIT_BREAKER_OPEN_DURATION =
+                "ArtifactResolutionCircuitBreakerOpenDuration";
+        public static final String ARTIFACT_RESOLUTION_MAX_RESPONSE_SIZE = "ArtifactResolutionMaxResponseSize";
+        public static final String ARTIFACT_RESOLUTION_MAX_CONCURRENT_CALLS = "ArtifactResolutionMaxConcurrentCalls";
+        public static final String ARTIFACT_RESOLUTION_MAX_WAIT_TIME = "ArtifactResolutionMaxWaitTime";
+        public static final String ARTIFACT_RESOLUTION_HEDGING_PERCENTILE = "ArtifactResolutionHedgingPercentile";
+        public static final String ARTIFACT_RESOLUTION_HEDGING_DELAY = "ArtifactResolutionHedgingDelay";
+        public static final String SAML_MESSAGE_MAX_SIZE = "SAMLMessageMaxSize";
+        public static final String SAML_MESSAGE_MAX_DEPTH = "SAMLMessageMaxDepth";
+        public static final String SAML_MESSAGE_MAX_ELEMENT_COUNT = "SAMLMessageMaxElementCount";
     }
 }
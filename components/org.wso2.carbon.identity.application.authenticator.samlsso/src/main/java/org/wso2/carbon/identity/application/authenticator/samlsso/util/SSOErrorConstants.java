@@ -64,6 +64,17 @@ public class SSOErrorConstants {
         SAML_RESPONSE_STATUS_CODE_MISMATCHED_WITH_SUCCESS_CODE("SAM-60132", "Received an error SAML response."),
         ARTIFACT_RESPONSE_RESOLUTION_FAILED("SAM-60133", "Error when getting the Artifact Response."),
         INVALID_SINGLE_LOGOUT_SAML_REQUEST("SAM-60134", "Invalid Single Logout SAML Request"),
+        ARTIFACT_RESOLUTION_TIMED_OUT("SAM-60135", "Timed out while resolving the SAML artifact."),
+        ARTIFACT_RESOLUTION_CIRCUIT_OPEN("SAM-60136",
+                "Artifact resolution endpoint of the identity provider is temporarily unavailable."),
+        ARTIFACT_RESPONSE_SIZE_EXCEEDED("SAM-60137", "Artifact Response exceeds the maximum allowed size."),
+        ARTIFACT_RESOLUTION_BULKHEAD_FULL("SAM-60138",
+                "Maximum number of concurrent artifact resolutions with the identity provider is reached."),
+        INVALID_SAML_ARTIFACT("SAM-60139", "Received SAML artifact is not a valid type 0x0004 artifact."),
+        UNKNOWN_SAML_ARTIFACT_SOURCE_ID("SAM-60140",
+                "Received SAML artifact was not issued by the identity provider."),
+        SAML_MESSAGE_LIMIT_EXCEEDED("SAM-60141",
+                "SAML message exceeds the allowed size, depth or number of elements."),
         // SAML Assertion related Exceptions
         SAML_ASSERTION_NOT_FOUND_IN_RESPONSE("SAM-60001", "SAML Assertion is not found in the Response"),
         AUDIENCE_RESTRICTION_VALIDATION_FAILED("SAM-60002",
@@ -19,6 +19,7 @@ package org.wso2.carbon.identity.application.authenticator.samlsso.util;
 
 import net.shibboleth.utilities.java.support.security.RandomIdentifierGenerationStrategy;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,25 +48,28 @@ import org.opensaml.xmlsec.signature.support.SignatureValidationProvider;
 import org.opensaml.xmlsec.signature.support.Signer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.w3c.dom.bootstrap.DOMImplementationRegistry;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSOutput;
-import org.w3c.dom.ls.LSSerializer;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
 import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
 import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationManagementUtil;
-import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URLEncoder;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
@@ -75,18 +79,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 public class SSOUtils {
 
@@ -95,6 +91,18 @@ public class SSOUtils {
     }
 
     private static final Log log = LogFactory.getLog(SSOUtils.class);
+    private static final SecureDocumentBuilderPool DOCUMENT_BUILDERS = new SecureDocumentBuilderPool();
+
+    private static final String EXCLUSIVE_C14N_WITH_COMMENTS = "http://www.w3.org/2001/10/xml-exc-c14n#WithComments";
+    private static final String ASSERTION = "Assertion";
+    private static final String SIGNATURE = "Signature";
+    private static final String SIGNED_INFO = "SignedInfo";
+    private static final String REFERENCE = "Reference";
+    private static final String TRANSFORMS = "Transforms";
+    private static final String TRANSFORM = "Transform";
+    private static final String ID = "ID";
+    private static final String URI = "URI";
+    private static final String ALGORITHM = "Algorithm";
 
     /**
      * Generates a unique Id for Authentication Requests
@@ -291,54 +299,15 @@ public class SSOUtils {
      * @return decoded AuthReq
      */
     public static String decode(String encodedStr) throws SAMLSSOException {
-        try {
-            if(log.isDebugEnabled()){
-                log.debug(" >> encoded string in the SSOUtils/decode : " + encodedStr);
-            }
-            org.apache.commons.codec.binary.Base64 base64Decoder =
-                    new org.apache.commons.codec.binary.Base64();
-            byte[] xmlBytes = encodedStr.getBytes("UTF-8");
-            byte[] base64DecodedByteArray = base64Decoder.decode(xmlBytes);
-
-            try {
-                //TODO if the request came in POST, inflating is wrong
-                Inflater inflater = new Inflater(true);
-                inflater.setInput(base64DecodedByteArray);
-                byte[] xmlMessageBytes = new byte[5000];
-                int resultLength = inflater.inflate(xmlMessageBytes);
 
-                if (!inflater.finished() ){
-                    throw new RuntimeException("End of the compressed data stream has NOT been reached");
-                }
-
-                inflater.end();
-                String decodedString = new String(xmlMessageBytes, 0, resultLength, "UTF-8");
-                if (log.isDebugEnabled()) {
-                    log.debug("Request message " + decodedString);
-                }
-                return decodedString;
-
-            } catch (DataFormatException e) {
-                ByteArrayInputStream bais = new ByteArrayInputStream(base64DecodedByteArray);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                InflaterInputStream iis = new InflaterInputStream(bais);
-                byte[] buf = new byte[1024];
-                int count = iis.read(buf);
-                while (count != -1) {
-                    baos.write(buf, 0, count);
-                    count = iis.read(buf);
-                }
-                iis.close();
-                String decodedStr = new String(baos.toByteArray(), Charset.forName("UTF-8"));
-                if (log.isDebugEnabled()) {
-                    log.debug("Request message " + decodedStr);
-                }
-                return decodedStr;
-            }
-        } catch (IOException e) {
-            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(), "Error when decoding the SAML Request.", e);
+        if (log.isDebugEnabled()) {
+            log.debug(" >> encoded string in the SSOUtils/decode : " + encodedStr);
         }
-
+        String decodedString = new String(inflate(encodedStr), StandardCharsets.UTF_8);
+        if (log.isDebugEnabled()) {
+            log.debug("Request message " + decodedString);
+        }
+        return decodedString;
     }
 
     public static String decodeForPost(String encodedStr)
@@ -367,23 +336,32 @@ public class SSOUtils {
      * @throws SAMLSSOException
      */
     public static String marshall(XMLObject xmlObject) throws SAMLSSOException {
-        try {
 
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory",
-                    "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl");
+        ByteArrayOutputStream byteArrayOutputStrm = new ByteArrayOutputStream();
+        SAMLMessageSerializer.serialize(marshallToElement(xmlObject), byteArrayOutputStrm);
+        return new String(byteArrayOutputStrm.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializing a SAML2 object into the given writer, without building the serialized object as a String.
+     *
+     * @param xmlObject object that needs to serialized.
+     * @param writer    writer to write the serialized object to.
+     * @throws SAMLSSOException
+     */
+    public static void marshall(XMLObject xmlObject, Writer writer) throws SAMLSSOException {
+
+        SAMLMessageSerializer.serialize(marshallToElement(xmlObject), writer);
+    }
 
+    private static Element marshallToElement(XMLObject xmlObject) throws SAMLSSOException {
+
+        // Resolved before marshalling, as it sets the DocumentBuilderFactory used by the marshallers.
+        SAMLMessageSerializer.init();
+        try {
             MarshallerFactory marshallerFactory = XMLObjectProviderRegistrySupport.getMarshallerFactory();
             Marshaller marshaller = marshallerFactory.getMarshaller(xmlObject);
-            Element element = marshaller.marshall(xmlObject);
-
-            ByteArrayOutputStream byteArrayOutputStrm = new ByteArrayOutputStream();
-            DOMImplementationRegistry registry = DOMImplementationRegistry.newInstance();
-            DOMImplementationLS impl = (DOMImplementationLS) registry.getDOMImplementation("LS");
-            LSSerializer writer = impl.createLSSerializer();
-            LSOutput output = impl.createLSOutput();
-            output.setByteStream(byteArrayOutputStrm);
-            writer.write(element, output);
-            return byteArrayOutputStrm.toString();
+            return marshaller.marshall(xmlObject);
         } catch (Exception e) {
             log.error("Error Serializing the SAML Response");
             throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(), "Error Serializing the SAML Response", e);
@@ -399,23 +377,126 @@ public class SSOUtils {
      */
     public static XMLObject unmarshall(String samlString) throws SAMLSSOException {
 
+        return unmarshall(new InputSource(new StringReader(samlString)));
+    }
+
+    /**
+     * Unmarshall the SAML message in the given bytes. The character encoding is detected by the parser from the
+     * XML declaration or the byte order mark, as for {@link #unmarshall(InputStream)}.
+     *
+     * @param samlMessage Bytes of the SAML message.
+     * @return Unmarshalled SAML object.
+     * @throws SAMLSSOException If the message cannot be parsed or unmarshalled.
+     */
+    public static XMLObject unmarshall(byte[] samlMessage) throws SAMLSSOException {
+
+        return unmarshall(new ByteArrayInputStream(samlMessage));
+    }
+
+    /**
+     * Unmarshall the SAML message read from the given stream. The stream is parsed only once, keeping the comments.
+     * The comments are then removed unless the assertion is signed with the WithComments canonicalization algorithm,
+     * so that the signature of such an assertion can still be validated.
+     *
+     * @param inputStream Stream of the SAML message.
+     * @return Unmarshalled SAML object.
+     * @throws SAMLSSOException If the message cannot be parsed or unmarshalled.
+     */
+    public static XMLObject unmarshall(InputStream inputStream) throws SAMLSSOException {
+
+        return unmarshall(new InputSource(inputStream));
+    }
+
+    /**
+     * Pre-validate and unmarshall an inbound SAML message of the HTTP POST or the HTTP Redirect binding. The message
+     * is decoded, and inflated for the HTTP Redirect binding, once into a buffer. The buffer is then prescanned with
+     * {@link SAMLMessagePrescanner} and unmarshalled.
+     *
+     * @param encodedStr Base64 encoded SAML message, which is also deflated for the HTTP Redirect binding.
+     * @param isPost     Whether the message was received with the HTTP POST binding.
+     * @return Unmarshalled SAML object.
+     * @throws SAMLSSOException If the message is rejected, or cannot be decoded, parsed or unmarshalled.
+     */
+    public static XMLObject unmarshallInboundMessage(String encodedStr, boolean isPost) throws SAMLSSOException {
+
+        byte[] samlMessage;
+        if (isPost) {
+            samlMessage = readMessage(new Base64InputStream(new ByteArrayInputStream(
+                    encodedStr.getBytes(StandardCharsets.US_ASCII))));
+        } else {
+            samlMessage = inflate(encodedStr);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Request message " + new String(samlMessage, StandardCharsets.UTF_8));
+        }
+        SAMLMessagePrescanner.prescan(new ByteArrayInputStream(samlMessage));
+        return unmarshall(samlMessage);
+    }
+
+    /**
+     * Read a decoded SAML message, up to the maximum size of a SAML message.
+     */
+    private static byte[] readMessage(InputStream inputStream) throws SAMLSSOException {
+
+        long maxSize = SAMLMessagePrescanner.getMaxMessageSize();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try {
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                if (outputStream.size() + count > maxSize) {
+                    throw SAMLMessagePrescanner.getLimitExceededException("size", maxSize);
+                }
+                outputStream.write(buffer, 0, count);
+            }
+        } catch (SAMLMessageSizeExceededException e) {
+            throw SAMLMessagePrescanner.getLimitExceededException("size", maxSize);
+        } catch (EOFException e) {
+            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(),
+                    "End of the compressed data stream has NOT been reached", e);
+        } catch (IOException e) {
+            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(), "Error when decoding the SAML Request.", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Base64-decode and inflate a SAML message of the HTTP Redirect binding into a buffer, up to the maximum size of
+     * a SAML message. The Inflater is given back to the pool when the stream is closed, even if the message is
+     * rejected before it is read to the end.
+     */
+    private static byte[] inflate(String encodedStr) throws SAMLSSOException {
+
+        try (InputStream inputStream = SAMLMessageInflater.inflate(new Base64InputStream(new ByteArrayInputStream(
+                encodedStr.getBytes(StandardCharsets.US_ASCII))), SAMLMessagePrescanner.getMaxMessageSize())) {
+            return readMessage(inputStream);
+        } catch (IOException e) {
+            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(), "Error when decoding the SAML Request.", e);
+        }
+    }
+
+    private static XMLObject unmarshall(InputSource inputSource) throws SAMLSSOException {
+
         try {
-            DocumentBuilderFactory documentBuilderFactory = IdentityUtil.getSecuredDocumentBuilderFactory();
-            documentBuilderFactory.setIgnoringComments(true);
-            Document document = getDocument(documentBuilderFactory, samlString);
-            if (isSignedWithComments(document)) {
-                documentBuilderFactory.setIgnoringComments(false);
-                document = getDocument(documentBuilderFactory, samlString);
+            Document document = parse(DOCUMENT_BUILDERS, inputSource);
+            if (!isSignedWithComments(document)) {
+                removeComments(document);
+                document.normalize();
             }
             Element element = document.getDocumentElement();
             UnmarshallerFactory unmarshallerFactory = XMLObjectProviderRegistrySupport.getUnmarshallerFactory();
             Unmarshaller unmarshaller = unmarshallerFactory.getUnmarshaller(element);
+            if (unmarshaller == null) {
+                throw new SAMLSSOException(ErrorMessages.UNMARSHALLING_SAML_REQUEST_ENCODED_STRING_FAILED.getCode(),
+                        "No unmarshaller is registered for the element: " + element.getLocalName());
+            }
             return unmarshaller.unmarshall(element);
+        } catch (SAMLMessageSizeExceededException e) {
+            throw SAMLMessagePrescanner.getLimitExceededException("size", SAMLMessagePrescanner.getMaxMessageSize());
         } catch (ParserConfigurationException | UnmarshallingException | SAXException | IOException e) {
             throw new SAMLSSOException(ErrorMessages.UNMARSHALLING_SAML_REQUEST_ENCODED_STRING_FAILED.getCode(),
                     ErrorMessages.UNMARSHALLING_SAML_REQUEST_ENCODED_STRING_FAILED.getMessage(), e);
         }
-
     }
 
     /**
@@ -425,10 +506,29 @@ public class SSOUtils {
      * @return encoded String
      */
     public static String encode(String xmlString) {
-        String encodedRequestMessage = new String(org.apache.commons.codec.binary.Base64.encodeBase64(xmlString.getBytes(), false));
+        String encodedRequestMessage = new String(org.apache.commons.codec.binary.Base64.encodeBase64(
+                xmlString.getBytes(StandardCharsets.UTF_8), false));
         return encodedRequestMessage.trim();
     }
 
+    /**
+     * Encode a SAML message for the HTTP Redirect binding. The message is serialized, deflated, base64 encoded and
+     * URL encoded in a single pass.
+     *
+     * @param node DOM of the SAML message.
+     * @return Encoded SAML message, which can be used as the value of the SAMLRequest query parameter.
+     * @throws SAMLSSOException If the message cannot be encoded.
+     */
+    public static String encodeForRedirect(Node node) throws SAMLSSOException {
+
+        try {
+            return SAMLMessageDeflater.encode(node);
+        } catch (IOException e) {
+            throw new SAMLSSOException(ErrorMessages.IO_ERROR.getCode(),
+                    "Error occurred while encoding SAML request", e);
+        }
+    }
+
     public static boolean isAuthnRequestSigned(Map<String, String> properties) {
         if (properties != null) {
             String prop = properties.get(IdentityApplicationConstants.Authenticator.SAML2SSO.IS_AUTHN_REQ_SIGNED);
@@ -523,6 +623,27 @@ public class SSOUtils {
         return artifactResolveUrl;
     }
 
+    /**
+     * Get the artifact resolve endpoints of the identity provider. Several endpoints can be configured as a comma
+     * separated list, in the order in which they should be tried.
+     *
+     * @param properties Authenticator properties of the identity provider.
+     * @return Artifact resolve URLs, or an empty list if none is configured.
+     */
+    public static List<String> getArtifactResolveUrls(Map<String, String> properties) {
+
+        List<String> artifactResolveUrls = new ArrayList<>();
+        String artifactResolveUrl = getArtifactResolveUrl(properties);
+        if (StringUtils.isNotBlank(artifactResolveUrl)) {
+            for (String url : artifactResolveUrl.split(",")) {
+                if (StringUtils.isNotBlank(url)) {
+                    artifactResolveUrls.add(url.trim());
+                }
+            }
+        }
+        return artifactResolveUrls;
+    }
+
     public static String getSignatureAlgorithm(Map<String, String> properties) {
 
         String signatureAlgo = null;
@@ -585,51 +706,151 @@ public class SSOUtils {
         return map;
     }
 
+    /**
+     * Read a parameter of the SAMLSSOAuthenticator configuration in application-authentication.xml.
+     *
+     * @param parameterName Name of the parameter.
+     * @return Value of the parameter or null if it is not configured.
+     */
+    public static String getAuthenticatorConfigParameter(String parameterName) {
+
+        AuthenticatorConfig authenticatorConfig = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorConfigMap().get(SSOConstants.AUTHENTICATOR_NAME);
+        if (authenticatorConfig != null && authenticatorConfig.getParameterMap() != null) {
+            return authenticatorConfig.getParameterMap().get(parameterName);
+        }
+        return null;
+    }
+
+    /**
+     * Read a numeric parameter of the SAMLSSOAuthenticator configuration in application-authentication.xml.
+     *
+     * @param parameterName Name of the parameter.
+     * @param defaultValue  Value to be used when the parameter is not configured or is not a valid number.
+     * @return Value of the parameter.
+     */
+    public static long getAuthenticatorConfigParameter(String parameterName, long defaultValue) {
+
+        return parseLong(parameterName, getAuthenticatorConfigParameter(parameterName), defaultValue);
+    }
+
+    /**
+     * Read a positive integer property of the identity provider.
+     *
+     * @param authenticatorProperties Authenticator properties of the identity provider.
+     * @param name                    Name of the property.
+     * @param defaultValue            Value to be used when the property is not configured or is not valid.
+     * @return Value of the property.
+     */
+    public static int getPositiveIntProperty(Map<String, String> authenticatorProperties, String name,
+                                             int defaultValue) {
+
+        String value = authenticatorProperties.get(name);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            if (intValue > 0) {
+                return intValue;
+            }
+        } catch (NumberFormatException e) {
+            // Fall back to the default value below.
+        }
+        log.warn("Invalid value: " + value + " configured for: " + name + ". Using the default value: " +
+                defaultValue);
+        return defaultValue;
+    }
+
+    private static long parseLong(String name, String value, long defaultValue) {
+
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid numeric value: " + value + " configured for: " + name + ". Using the default value: "
+                    + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Return whether SAML Assertion has the canonicalization method
-     * set to 'http://www.w3.org/2001/10/xml-exc-c14n#WithComments'.
+     * set to 'http://www.w3.org/2001/10/xml-exc-c14n#WithComments'. The signature elements are found by walking the
+     * children of the assertions, instead of evaluating XPath expressions over the whole document.
      *
      * @param document
      * @return true if canonicalization method equals to 'http://www.w3.org/2001/10/xml-exc-c14n#WithComments'
      */
     private static boolean isSignedWithComments(Document document) {
 
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        try {
-            String assertionId = (String) xPath.compile("//*[local-name()='Assertion']/@ID")
-                    .evaluate(document, XPathConstants.STRING);
+        NodeList assertions = document.getElementsByTagNameNS("*", ASSERTION);
+        if (assertions.getLength() == 0) {
+            return false;
+        }
+        String assertionId = ((Element) assertions.item(0)).getAttributeNS(null, ID);
+        if (StringUtils.isBlank(assertionId)) {
+            return false;
+        }
 
-            if (StringUtils.isBlank(assertionId)) {
-                return false;
+        String referenceUri = "#" + assertionId;
+        for (int i = 0; i < assertions.getLength(); i++) {
+            for (Element signature : getChildElements(assertions.item(i), SIGNATURE)) {
+                for (Element signedInfo : getChildElements(signature, SIGNED_INFO)) {
+                    for (Element reference : getChildElements(signedInfo, REFERENCE)) {
+                        if (!referenceUri.equals(reference.getAttributeNS(null, URI))) {
+                            continue;
+                        }
+                        for (Element transforms : getChildElements(reference, TRANSFORMS)) {
+                            for (Element transform : getChildElements(transforms, TRANSFORM)) {
+                                if (EXCLUSIVE_C14N_WITH_COMMENTS.equals(transform.getAttributeNS(null, ALGORITHM))) {
+                                    return true;
+                                }
+                            }
+                        }
+                    }
+                }
             }
+        }
+        return false;
+    }
 
-            NodeList nodeList = ((NodeList) xPath.compile(
-                    "//*[local-name()='Assertion']" +
-                            "/*[local-name()='Signature']" +
-                            "/*[local-name()='SignedInfo']" +
-                            "/*[local-name()='Reference'][@URI='#" + assertionId + "']" +
-                            "/*[local-name()='Transforms']" +
-                            "/*[local-name()='Transform']" +
-                            "[@Algorithm='http://www.w3.org/2001/10/xml-exc-c14n#WithComments']")
-                    .evaluate(document, XPathConstants.NODESET));
-            return nodeList != null && nodeList.getLength() > 0;
-        } catch (XPathExpressionException e) {
-            String message = "Failed to find the canonicalization algorithm of the assertion. Defaulting to: " +
-                    "http://www.w3.org/2001/10/xml-exc-c14n#";
-            log.warn(message);
-            if (log.isDebugEnabled()) {
-                log.debug(message, e);
+    private static List<Element> getChildElements(Node node, String localName) {
+
+        List<Element> childElements = new ArrayList<>();
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && localName.equals(child.getLocalName())) {
+                childElements.add((Element) child);
             }
-            return false;
         }
+        return childElements;
     }
 
-    private static Document getDocument(DocumentBuilderFactory documentBuilderFactory, String samlString)
+    private static void removeComments(Node node) {
+
+        Node child = node.getFirstChild();
+        while (child != null) {
+            Node next = child.getNextSibling();
+            if (child.getNodeType() == Node.COMMENT_NODE) {
+                node.removeChild(child);
+            } else {
+                removeComments(child);
+            }
+            child = next;
+        }
+    }
+
+    private static Document parse(SecureDocumentBuilderPool documentBuilders, InputSource inputSource)
             throws IOException, SAXException, ParserConfigurationException {
 
-        DocumentBuilder docBuilder = documentBuilderFactory.newDocumentBuilder();
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(samlString.getBytes());
-        return docBuilder.parse(inputStream);
+        DocumentBuilder docBuilder = documentBuilders.borrow();
+        try {
+            return docBuilder.parse(inputSource);
+        } finally {
+            documentBuilders.release(docBuilder);
+        }
     }
 
     /**
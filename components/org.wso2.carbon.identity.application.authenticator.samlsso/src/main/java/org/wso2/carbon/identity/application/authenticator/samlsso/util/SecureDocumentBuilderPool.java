@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Bounded pool of DocumentBuilders created from the secured DocumentBuilderFactory of
+ * {@link IdentityUtil#getSecuredDocumentBuilderFactory()}, so that the XXE protections of the factory apply to every
+ * builder. The factory is looked up once, when the first builder of the pool is created, instead of for every parsed
+ * message. The builders keep the comments of the parsed documents, so that signatures over comments can be
+ * detected. The builders are reset when they are returned to the pool, which restores the configuration they were
+ * created with.
+ */
+final class SecureDocumentBuilderPool {
+
+    private static final Log log = LogFactory.getLog(SecureDocumentBuilderPool.class);
+
+    private static final int MAX_POOLED_BUILDERS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final BlockingQueue<DocumentBuilder> builders = new ArrayBlockingQueue<>(MAX_POOLED_BUILDERS);
+    private DocumentBuilderFactory documentBuilderFactory;
+
+    /**
+     * Take a DocumentBuilder from the pool, or create one if the pool is empty. The builder must be given back with
+     * {@link #release(DocumentBuilder)} once the document is parsed.
+     *
+     * @return DocumentBuilder.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created.
+     */
+    DocumentBuilder borrow() throws ParserConfigurationException {
+
+        DocumentBuilder documentBuilder = builders.poll();
+        return documentBuilder != null ? documentBuilder : newDocumentBuilder();
+    }
+
+    /**
+     * Reset the given DocumentBuilder and return it to the pool. The builder is discarded if it cannot be reset or
+     * if the pool is full.
+     *
+     * @param documentBuilder DocumentBuilder taken from the pool.
+     */
+    void release(DocumentBuilder documentBuilder) {
+
+        try {
+            documentBuilder.reset();
+        } catch (UnsupportedOperationException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("DocumentBuilder: " + documentBuilder.getClass().getName() + " cannot be reset. " +
+                        "Discarding it.");
+            }
+            return;
+        }
+        builders.offer(documentBuilder);
+    }
+
+    private DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+
+        // DocumentBuilderFactory is not thread safe.
+        synchronized (this) {
+            if (documentBuilderFactory == null) {
+                documentBuilderFactory = IdentityUtil.getSecuredDocumentBuilderFactory();
+                documentBuilderFactory.setIgnoringComments(false);
+            }
+            return documentBuilderFactory.newDocumentBuilder();
+        }
+    }
+}
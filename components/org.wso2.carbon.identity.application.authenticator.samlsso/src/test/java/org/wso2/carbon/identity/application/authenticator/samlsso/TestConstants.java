@@ -388,6 +388,14 @@ public final class TestConstants {
 
     public static final String IDP_ACS_URL = "https://wso2is.com:9443/commonauth";
 
+    public static final String INBOUND_EXTENSION_NAMESPACE = "urn:sample:extensions";
+
+    public static final String INBOUND_EXTENSION_ELEMENT = "Purpose";
+
+    public static final String INBOUND_EXTENSION_PREFIX = "ext";
+
+    public static final String INBOUND_EXTENSION_VALUE = "checkout";
+
     public static final String INBOUND_SAML_SLO_URL = "https://localhost:9443/identity/saml/slo";
 
     public static final String AUTHENTICATED_USER = "admin";
@@ -434,6 +442,8 @@ public final class TestConstants {
                 .SAML2_POST_BINDING_URI, INBOUND_ACS_URL, INBOUND_IDP_URL, false, null)),
         INBOUND_REDIRECT_REQUEST(new RequestData(INBOUND_SP_ENTITY_ID, false, false, SAMLConstants
                 .SAML2_REDIRECT_BINDING_URI, INBOUND_ACS_URL, INBOUND_IDP_URL, false, null)),
+        INBOUND_POST_REQUEST_WITH_EXTENSIONS(new RequestData(INBOUND_SP_ENTITY_ID, false, false, SAMLConstants
+                .SAML2_POST_BINDING_URI, INBOUND_ACS_URL, INBOUND_IDP_URL, true, null)),
         /**
          * String spEntityId
          * boolean isForce
@@ -26,6 +26,7 @@ import org.opensaml.saml.common.xml.SAMLConstants;
 import org.opensaml.saml.saml2.core.AuthnContextClassRef;
 import org.opensaml.saml.saml2.core.AuthnContextComparisonTypeEnumeration;
 import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Extensions;
 import org.opensaml.saml.saml2.core.Issuer;
 import org.opensaml.saml.saml2.core.LogoutRequest;
 import org.opensaml.saml.saml2.core.NameID;
@@ -35,6 +36,7 @@ import org.opensaml.saml.saml2.core.RequestedAuthnContext;
 import org.opensaml.saml.saml2.core.SessionIndex;
 import org.opensaml.saml.saml2.core.impl.AuthnContextClassRefBuilder;
 import org.opensaml.saml.saml2.core.impl.AuthnRequestBuilder;
+import org.opensaml.saml.saml2.core.impl.ExtensionsBuilder;
 import org.opensaml.saml.saml2.core.impl.IssuerBuilder;
 import org.opensaml.saml.saml2.core.impl.LogoutRequestBuilder;
 import org.opensaml.saml.saml2.core.impl.NameIDBuilder;
@@ -46,6 +48,8 @@ import org.opensaml.core.xml.io.Marshaller;
 import org.opensaml.core.xml.io.MarshallingException;
 import org.opensaml.core.xml.io.Unmarshaller;
 import org.opensaml.core.xml.io.UnmarshallerFactory;
+import org.opensaml.core.xml.schema.XSAny;
+import org.opensaml.core.xml.schema.impl.XSAnyBuilder;
 import net.shibboleth.utilities.java.support.xml.SerializeSupport;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -60,6 +64,7 @@ import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.Random;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
@@ -145,6 +150,17 @@ public class TestUtils {
             authRequest.setAttributeConsumingServiceIndex(Integer.parseInt(requestData.getAcsIndex()));
         }
 
+        // Extensions
+        if (requestData.isEnableExtensions()) {
+            XSAny extension = new XSAnyBuilder().buildObject(TestConstants.INBOUND_EXTENSION_NAMESPACE,
+                    TestConstants.INBOUND_EXTENSION_ELEMENT, TestConstants.INBOUND_EXTENSION_PREFIX);
+            extension.setTextContent(TestConstants.INBOUND_EXTENSION_VALUE);
+            Extensions extensions = new ExtensionsBuilder().buildObject(SAMLConstants.SAML20P_NS,
+                    Extensions.DEFAULT_ELEMENT_LOCAL_NAME, SAMLConstants.SAML20P_PREFIX);
+            extensions.getUnknownXMLObjects().add(extension);
+            authRequest.setExtensions(extensions);
+        }
+
         return authRequest;
     }
 
@@ -214,6 +230,23 @@ public class TestUtils {
         }
     }
 
+    /**
+     * Build a type 0x0004 SAML artifact issued by the given entity.
+     *
+     * @param issuerEntityId Entity ID of the issuer of the artifact.
+     * @return Base64 encoded artifact.
+     */
+    public static String buildSAMLArtifact(String issuerEntityId) throws Exception {
+
+        ByteArrayOutputStream artifact = new ByteArrayOutputStream();
+        artifact.write(new byte[]{0, 4, 0, 0});
+        artifact.write(MessageDigest.getInstance("SHA-1").digest(issuerEntityId.getBytes(StandardCharsets.UTF_8)));
+        byte[] messageHandle = new byte[20];
+        new Random().nextBytes(messageHandle);
+        artifact.write(messageHandle);
+        return new String(org.apache.commons.codec.binary.Base64.encodeBase64(artifact.toByteArray(), false));
+    }
+
     private static String createID() {
 
         byte[] bytes = new byte[20]; // 160 bit
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests for the per identity provider bulkheads of the artifact resolution.
+ */
+public class ArtifactResolutionBulkheadTest {
+
+    private static final String SLOW_IDP = "carbon.super:slow-idp";
+    private static final String OTHER_IDP = "carbon.super:other-idp";
+
+    private final ArtifactResolutionBulkhead bulkhead = ArtifactResolutionBulkhead.getInstance();
+
+    @AfterMethod
+    public void tearDown() {
+
+        bulkhead.reset();
+    }
+
+    @Test
+    public void testRejectWhenCompartmentIsFull() throws Exception {
+
+        ArtifactResolutionBulkhead.Compartment first = bulkhead.acquire(SLOW_IDP, 2, 100);
+        ArtifactResolutionBulkhead.Compartment second = bulkhead.acquire(SLOW_IDP, 2, 100);
+        assertEquals(bulkhead.getActiveCalls(SLOW_IDP), 2, "Unexpected number of active calls.");
+
+        try {
+            bulkhead.acquire(SLOW_IDP, 2, 100);
+            fail("Artifact resolution was not rejected while the compartment is full.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_BULKHEAD_FULL.getCode(),
+                    "Unexpected error code.");
+        }
+
+        // Other identity providers are not affected by the full compartment.
+        bulkhead.acquire(OTHER_IDP, 2, 100).release();
+
+        first.release();
+        second.release();
+        assertEquals(bulkhead.getActiveCalls(SLOW_IDP), 0, "Slots were not released.");
+        bulkhead.acquire(SLOW_IDP, 2, 100).release();
+    }
+
+    @Test
+    public void testQueuedCallAcquiresReleasedSlot() throws Exception {
+
+        ArtifactResolutionBulkhead.Compartment compartment = bulkhead.acquire(SLOW_IDP, 1, 100);
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<ArtifactResolutionBulkhead.Compartment> queuedCall = executorService.submit(() ->
+                    bulkhead.acquire(SLOW_IDP, 1, 10000));
+
+            long startTime = System.currentTimeMillis();
+            while (bulkhead.getQueuedCalls(SLOW_IDP) == 0 && System.currentTimeMillis() - startTime < 5000) {
+                Thread.sleep(10);
+            }
+            assertEquals(bulkhead.getQueuedCalls(SLOW_IDP), 1, "Unexpected number of queued calls.");
+
+            compartment.release();
+            ArtifactResolutionBulkhead.Compartment queuedCompartment = queuedCall.get(5, TimeUnit.SECONDS);
+            assertNotNull(queuedCompartment, "Queued call did not acquire the released slot.");
+            assertEquals(bulkhead.getQueuedCalls(SLOW_IDP), 0, "Unexpected number of queued calls.");
+            assertEquals(bulkhead.getActiveCalls(SLOW_IDP), 1, "Unexpected number of active calls.");
+            queuedCompartment.release();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testResizeKeepsCallsInProgress() throws Exception {
+
+        ArtifactResolutionBulkhead.Compartment first = bulkhead.acquire(SLOW_IDP, 2, 100);
+        ArtifactResolutionBulkhead.Compartment second = bulkhead.acquire(SLOW_IDP, 2, 100);
+
+        // Growing the compartment adds a slot next to the calls in progress.
+        ArtifactResolutionBulkhead.Compartment third = bulkhead.acquire(SLOW_IDP, 3, 100);
+        assertSame(third, first, "Compartment was replaced when it was resized.");
+        ArtifactResolutionBulkhead.Statistics statistics = bulkhead.getStatistics().get(SLOW_IDP);
+        assertEquals(statistics.getMaxConcurrentCalls(), 3, "Compartment was not grown.");
+        assertEquals(statistics.getActiveCalls(), 3, "Unexpected number of active calls.");
+
+        // Shrinking the compartment keeps counting the calls in progress against the new limit.
+        try {
+            bulkhead.acquire(SLOW_IDP, 1, 100);
+            fail("Artifact resolution was not rejected while more calls than the new limit are in progress.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_BULKHEAD_FULL.getCode(),
+                    "Unexpected error code.");
+        }
+        statistics = bulkhead.getStatistics().get(SLOW_IDP);
+        assertEquals(statistics.getMaxConcurrentCalls(), 1, "Compartment was not shrunk.");
+        assertEquals(statistics.getActiveCalls(), 3, "Calls in progress were lost when the compartment was resized.");
+
+        first.release();
+        second.release();
+        try {
+            bulkhead.acquire(SLOW_IDP, 1, 100);
+            fail("Artifact resolution was not rejected while more calls than the new limit are in progress.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_BULKHEAD_FULL.getCode(),
+                    "Unexpected error code.");
+        }
+        third.release();
+        ArtifactResolutionBulkhead.Compartment compartment = bulkhead.acquire(SLOW_IDP, 1, 100);
+        assertEquals(bulkhead.getStatistics().get(SLOW_IDP).getActiveCalls(), 1, "Unexpected number of active calls.");
+        compartment.release();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.DefaultSAML2SSOManager;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import static org.wso2.carbon.identity.application.authenticator.samlsso.artifact.StandInArtifactResolutionServer.getAuthenticatorProperties;
+
+/**
+ * Unit tests for the timeouts and the circuit breaker of the artifact resolution, using a local stand-in for the
+ * artifact resolution endpoint of the identity provider.
+ */
+@PrepareForTest({CarbonUtils.class})
+@PowerMockIgnore({"com.sun.net.httpserver.*", "javax.net.ssl.*"})
+public class ArtifactResolutionCircuitBreakerTest {
+
+    private static final String SOCKET_TIMEOUT = "500";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_DURATION = 2000;
+
+    private StandInArtifactResolutionServer server;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+        ArtifactResolutionCircuitBreaker.getInstance().reset();
+        DefaultSAML2SSOManager.doBootstrap();
+
+        server = new StandInArtifactResolutionServer("idp1");
+        server.start();
+        server.stall();
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(CarbonUtils.class);
+        when(CarbonUtils.getServerConfiguration()).thenReturn(null);
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        server.stop();
+        ArtifactResolutionCircuitBreaker.getInstance().reset();
+        ArtifactResolutionHttpClient.getInstance().shutdown();
+    }
+
+    @Test(priority = 1)
+    public void testTimeoutWhenEndpointStalls() throws Exception {
+
+        int responseCount = server.getResponseCount();
+        try {
+            getArtifactResolutionService("timeout-idp").getSAMLArtifactResponse(
+                    TestUtils.buildSAMLArtifact("timeout-idp"));
+            fail("Artifact resolution did not time out.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_TIMED_OUT.getCode(),
+                    "Unexpected error code.");
+        }
+        // The stand-in holds the request until it is released, so the resolution was ended by the socket timeout.
+        assertEquals(server.getResponseCount(), responseCount, "Stalled endpoint answered the request.");
+    }
+
+    @Test(priority = 2)
+    public void testCircuitOpensWhenEndpointStalls() throws Exception {
+
+        SAMLSSOArtifactResolutionService artifactResolutionService = getArtifactResolutionService("circuit-idp");
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            try {
+                artifactResolutionService.getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("circuit-idp"));
+                fail("Artifact resolution did not time out.");
+            } catch (ArtifactResolutionException e) {
+                assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_TIMED_OUT.getCode(),
+                        "Unexpected error code.");
+            }
+        }
+        assertEquals(ArtifactResolutionCircuitBreaker.getInstance().getState(getCircuitKey("circuit-idp")),
+                ArtifactResolutionCircuitBreaker.State.OPEN, "Circuit was not opened.");
+
+        // While the circuit is open, the threads calling the stalled endpoint are released without calling it.
+        int requestCountBeforeOpen = server.getRequestCount();
+        ExecutorService threadPool = Executors.newFixedThreadPool(4);
+        List<Future<String>> errorCodes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            errorCodes.add(threadPool.submit(() -> {
+                try {
+                    artifactResolutionService.getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("circuit-idp"));
+                    return null;
+                } catch (ArtifactResolutionException e) {
+                    return e.getErrorCode();
+                }
+            }));
+        }
+        threadPool.shutdown();
+        for (Future<String> errorCode : errorCodes) {
+            assertEquals(errorCode.get(), ErrorMessages.ARTIFACT_RESOLUTION_CIRCUIT_OPEN.getCode(),
+                    "Artifact resolution did not fail fast while the circuit was open.");
+        }
+        assertEquals(server.getRequestCount(), requestCountBeforeOpen,
+                "Stalled endpoint was called while the circuit was open.");
+    }
+
+    @Test(priority = 3, dependsOnMethods = "testCircuitOpensWhenEndpointStalls")
+    public void testCircuitClosesAfterSuccessfulProbe() throws Exception {
+
+        SAMLSSOArtifactResolutionService artifactResolutionService = getArtifactResolutionService("circuit-idp");
+        server.release();
+        Thread.sleep(OPEN_DURATION + 100);
+
+        assertNotNull(artifactResolutionService.getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("circuit-idp")),
+                "Unexpected response for the probe.");
+        assertEquals(ArtifactResolutionCircuitBreaker.getInstance().getState(getCircuitKey("circuit-idp")),
+                ArtifactResolutionCircuitBreaker.State.CLOSED, "Circuit was not closed after a successful probe.");
+    }
+
+    @Test(priority = 4)
+    public void testAbortedProbeReleasesHalfOpenCircuit() throws Exception {
+
+        ArtifactResolutionCircuitBreaker circuitBreaker = ArtifactResolutionCircuitBreaker.getInstance();
+        String circuitKey = getCircuitKey("aborted-probe-idp");
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            circuitBreaker.recordFailure(circuitKey);
+        }
+        assertEquals(circuitBreaker.getState(circuitKey), ArtifactResolutionCircuitBreaker.State.OPEN,
+                "Circuit was not opened.");
+        Thread.sleep(OPEN_DURATION + 100);
+
+        assertTrue(circuitBreaker.acquire(circuitKey), "Resolution was not let through as the probe.");
+        try {
+            circuitBreaker.acquire(circuitKey);
+            fail("A second resolution was let through while the probe was in progress.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_CIRCUIT_OPEN.getCode(),
+                    "Unexpected error code.");
+        }
+
+        circuitBreaker.releaseProbe(circuitKey);
+        assertEquals(circuitBreaker.getState(circuitKey), ArtifactResolutionCircuitBreaker.State.HALF_OPEN,
+                "Aborted probe changed the state of the circuit.");
+        assertTrue(circuitBreaker.acquire(circuitKey), "Next probe was not let through after the aborted probe.");
+    }
+
+    private SAMLSSOArtifactResolutionService getArtifactResolutionService(String idpEntityId) {
+
+        Map<String, String> authenticatorProperties = getAuthenticatorProperties(idpEntityId, server.getUrl());
+        authenticatorProperties.put(SSOConstants.ARTIFACT_RESOLVE_SOCKET_TIMEOUT, SOCKET_TIMEOUT);
+        return StandInArtifactResolutionServer.getArtifactResolutionService(authenticatorProperties);
+    }
+
+    private String getCircuitKey(String idpEntityId) {
+
+        return TestConstants.SUPER_TENANT_DOMAIN + ":" + idpEntityId;
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
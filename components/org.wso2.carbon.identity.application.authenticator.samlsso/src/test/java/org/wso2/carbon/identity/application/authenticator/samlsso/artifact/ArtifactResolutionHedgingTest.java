@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.opensaml.saml.saml2.core.ArtifactResponse;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.DefaultSAML2SSOManager;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.Map;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.fail;
+import static org.wso2.carbon.identity.application.authenticator.samlsso.artifact.StandInArtifactResolutionServer.getArtifactResolutionService;
+import static org.wso2.carbon.identity.application.authenticator.samlsso.artifact.StandInArtifactResolutionServer.getAuthenticatorProperties;
+
+/**
+ * Unit tests for the hedged requests across several artifact resolve endpoints of an identity provider, using local
+ * stand-ins for the artifact resolve endpoints.
+ */
+@PrepareForTest({CarbonUtils.class})
+@PowerMockIgnore({"com.sun.net.httpserver.*", "javax.net.ssl.*"})
+public class ArtifactResolutionHedgingTest {
+
+    private static final String SOCKET_TIMEOUT = "500";
+
+    private StandInArtifactResolutionServer slowServer;
+    private StandInArtifactResolutionServer fastServer;
+    private StandInArtifactResolutionServer failingServer;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+        DefaultSAML2SSOManager.doBootstrap();
+        ArtifactResolutionLatencyTracker.getInstance().reset();
+
+        slowServer = new StandInArtifactResolutionServer("idp1");
+        slowServer.start();
+        slowServer.stall();
+        fastServer = new StandInArtifactResolutionServer("idp1");
+        fastServer.start();
+        failingServer = new StandInArtifactResolutionServer("idp1");
+        failingServer.start();
+        failingServer.setFailureRate(1);
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(CarbonUtils.class);
+        when(CarbonUtils.getServerConfiguration()).thenReturn(null);
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        slowServer.stop();
+        fastServer.stop();
+        failingServer.stop();
+        ArtifactResolutionLatencyTracker.getInstance().reset();
+        ArtifactResolutionCircuitBreaker.getInstance().reset();
+        ArtifactResolutionHttpClient.getInstance().shutdown();
+    }
+
+    @Test
+    public void testHedgedRequestWinsOverSlowEndpoint() throws Exception {
+
+        SAMLSSOArtifactResolutionService artifactResolutionService = getArtifactResolutionService("hedged-idp",
+                slowServer.getUrl() + ", " + fastServer.getUrl());
+
+        int slowRequestCount = slowServer.getRequestCount();
+        int slowResponseCount = slowServer.getResponseCount();
+        int fastRequestCount = fastServer.getRequestCount();
+        ArtifactResponse artifactResponse = artifactResolutionService.getSAMLArtifactResponse(
+                TestUtils.buildSAMLArtifact("hedged-idp"));
+        assertNotNull(artifactResponse, "Artifact response was not resolved.");
+        assertEquals(slowServer.getRequestCount() - slowRequestCount, 1, "Slow endpoint was not called first.");
+        assertEquals(fastServer.getRequestCount() - fastRequestCount, 1,
+                "Hedged request was not sent to the next endpoint.");
+        // The slow endpoint holds its request until it is released, so the response came from the hedged request.
+        assertEquals(slowServer.getResponseCount(), slowResponseCount,
+                "Artifact resolution waited for the slow endpoint.");
+    }
+
+    @Test
+    public void testFailOverToNextEndpoint() throws Exception {
+
+        SAMLSSOArtifactResolutionService artifactResolutionService = getArtifactResolutionService("failover-idp",
+                failingServer.getUrl() + "," + fastServer.getUrl());
+
+        ArtifactResponse artifactResponse = artifactResolutionService.getSAMLArtifactResponseAsync(
+                TestUtils.buildSAMLArtifact("failover-idp")).get();
+        assertNotNull(artifactResponse, "Artifact response was not resolved from the next endpoint.");
+        assertNotNull(artifactResponse.getMessage(), "Artifact response does not contain the SAML response.");
+    }
+
+    @Test
+    public void testTimeoutWhenAllEndpointsStall() throws Exception {
+
+        Map<String, String> authenticatorProperties = getAuthenticatorProperties("stalled-idp",
+                slowServer.getUrl() + "," + slowServer.getUrl());
+        authenticatorProperties.put(SSOConstants.ARTIFACT_RESOLVE_SOCKET_TIMEOUT, SOCKET_TIMEOUT);
+        SAMLSSOArtifactResolutionService artifactResolutionService =
+                getArtifactResolutionService(authenticatorProperties);
+
+        int slowRequestCount = slowServer.getRequestCount();
+        try {
+            artifactResolutionService.getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("stalled-idp"));
+            fail("Artifact resolution did not time out.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_TIMED_OUT.getCode(),
+                    "Unexpected error code.");
+        }
+        assertEquals(slowServer.getRequestCount() - slowRequestCount, 2,
+                "Artifact resolve request was not sent to each endpoint.");
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.ServerConfiguration;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import javax.net.ssl.SSLContext;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit tests for ArtifactResolutionSSLContextHolder.
+ */
+public class ArtifactResolutionSSLContextHolderTest {
+
+    private ArtifactResolutionSSLContextHolder sslContextHolder = ArtifactResolutionSSLContextHolder.getInstance();
+
+    private File keyStoreFile;
+
+    private ServerConfiguration serverConfig;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        keyStoreFile = File.createTempFile("wso2carbon", ".jks");
+        Files.copy(Paths.get(TestUtils.getFilePath("wso2carbon.jks")), keyStoreFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        serverConfig = mock(ServerConfiguration.class);
+        when(serverConfig.getFirstProperty(SSOConstants.SECURITY_KEYSTORE_LOCATION))
+                .thenReturn(keyStoreFile.getAbsolutePath());
+        when(serverConfig.getFirstProperty(SSOConstants.ServerConfig.KEY_PASSWORD))
+                .thenReturn(TestConstants.KEY_STORE_PASSWORD);
+        when(serverConfig.getFirstProperty(SSOConstants.SECURITY_KEYSTORE_TYPE)).thenReturn("JKS");
+        sslContextHolder.invalidate();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        sslContextHolder.invalidate();
+        keyStoreFile.delete();
+    }
+
+    @Test
+    public void testGetSSLContextFromCache() throws Exception {
+
+        SSLContext sslContext = sslContextHolder.getSSLContext(serverConfig);
+
+        assertNotNull(sslContext, "Failed to build the SSL context.");
+        assertSame(sslContextHolder.getSSLContext(serverConfig), sslContext, "SSL context was built again.");
+    }
+
+    @Test
+    public void testRebuildSSLContextOnKeyStoreChange() throws Exception {
+
+        SSLContext sslContext = sslContextHolder.getSSLContext(serverConfig);
+        keyStoreFile.setLastModified(keyStoreFile.lastModified() - 60000);
+
+        assertNotSame(sslContextHolder.getSSLContext(serverConfig), sslContext,
+                "SSL context was not rebuilt after the keystore changed.");
+    }
+
+    @Test
+    public void testGetSSLContextWithoutServerConfiguration() throws Exception {
+
+        assertNull(sslContextHolder.getSSLContext(null), "SSL context was built without a server configuration.");
+    }
+}
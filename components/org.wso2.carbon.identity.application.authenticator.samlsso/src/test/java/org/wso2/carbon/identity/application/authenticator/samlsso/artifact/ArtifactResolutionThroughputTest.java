@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.opensaml.saml.saml2.core.ArtifactResponse;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.DefaultSAML2SSOManager;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import static org.wso2.carbon.identity.application.authenticator.samlsso.artifact.StandInArtifactResolutionServer.getArtifactResolutionService;
+import static org.wso2.carbon.identity.application.authenticator.samlsso.artifact.StandInArtifactResolutionServer.getAuthenticatorProperties;
+
+/**
+ * Multi-threaded throughput tests of the artifact resolution against a stand-in artifact resolution service, which
+ * measure the artifact resolutions completed per second and check them under injected latency and failures.
+ */
+@PrepareForTest({CarbonUtils.class})
+@PowerMockIgnore({"com.sun.net.httpserver.*", "javax.net.ssl.*"})
+public class ArtifactResolutionThroughputTest {
+
+    private static final Log log = LogFactory.getLog(ArtifactResolutionThroughputTest.class);
+
+    private static final String IDP_ENTITY_ID = "idp1";
+    private static final int THREAD_COUNT = 8;
+    private static final int RESOLUTIONS_PER_THREAD = 25;
+    // Stays within the queue of the artifact resolution thread pool, so that no resolution is rejected.
+    private static final int ASYNC_RESOLUTIONS = 100;
+    private static final long LATENCY = 20;
+
+    private StandInArtifactResolutionServer server;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+        DefaultSAML2SSOManager.doBootstrap();
+        server = new StandInArtifactResolutionServer(IDP_ENTITY_ID);
+        server.start();
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(CarbonUtils.class);
+        when(CarbonUtils.getServerConfiguration()).thenReturn(null);
+        server.setLatency(LATENCY);
+        server.setFailureRate(0);
+        server.resetMaxConcurrentRequests();
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        server.stop();
+        ArtifactResolutionCircuitBreaker.getInstance().reset();
+        ArtifactResolutionHttpClient.getInstance().shutdown();
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+
+        int requestCountBefore = server.getRequestCount();
+        ExecutorService threadPool = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<ArtifactResponse>> artifactResponses = new ArrayList<>();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < THREAD_COUNT * RESOLUTIONS_PER_THREAD; i++) {
+            artifactResponses.add(threadPool.submit(() -> getArtifactResolutionService("throughput-idp",
+                    server.getUrl()).getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("throughput-idp"))));
+        }
+        for (Future<ArtifactResponse> artifactResponse : artifactResponses) {
+            assertSignedArtifactResponse(artifactResponse.get());
+        }
+        long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        threadPool.shutdown();
+
+        logThroughput("Synchronous", artifactResponses.size(), elapsedTime);
+        assertEquals(server.getRequestCount() - requestCountBefore, artifactResponses.size(),
+                "Unexpected number of artifact resolve requests.");
+        assertTrue(server.getMaxConcurrentRequests() > 1, "Artifact resolutions were not run concurrently.");
+    }
+
+    @Test
+    public void testAsyncThroughput() throws Exception {
+
+        List<CompletableFuture<ArtifactResponse>> artifactResponses = new ArrayList<>();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ASYNC_RESOLUTIONS; i++) {
+            artifactResponses.add(getArtifactResolutionService("async-throughput-idp", server.getUrl())
+                    .getSAMLArtifactResponseAsync(TestUtils.buildSAMLArtifact("async-throughput-idp")));
+        }
+        CompletableFuture.allOf(artifactResponses.toArray(new CompletableFuture[0])).get();
+        long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+        for (CompletableFuture<ArtifactResponse> artifactResponse : artifactResponses) {
+            assertSignedArtifactResponse(artifactResponse.get());
+        }
+        logThroughput("Asynchronous", artifactResponses.size(), elapsedTime);
+        assertTrue(server.getMaxConcurrentRequests() > 1, "Artifact resolutions were not run concurrently.");
+    }
+
+    @Test
+    public void testInjectedFailures() throws Exception {
+
+        server.setFailureRate(1);
+        SAMLSSOArtifactResolutionService artifactResolutionService = getArtifactResolutionService("failing-idp",
+                server.getUrl());
+        try {
+            artifactResolutionService.getSAMLArtifactResponseAsync(TestUtils.buildSAMLArtifact("failing-idp")).get();
+            fail("Artifact resolution succeeded while the artifact resolve endpoint fails.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ArtifactResolutionException,
+                    "Artifact resolution did not fail with an ArtifactResolutionException.");
+        }
+    }
+
+    @Test
+    public void testInjectedLatency() throws Exception {
+
+        server.setLatency(1000);
+        Map<String, String> authenticatorProperties = getAuthenticatorProperties("slow-idp", server.getUrl());
+        authenticatorProperties.put(SSOConstants.ARTIFACT_RESOLVE_SOCKET_TIMEOUT, "200");
+        SAMLSSOArtifactResolutionService artifactResolutionService =
+                getArtifactResolutionService(authenticatorProperties);
+        try {
+            artifactResolutionService.getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("slow-idp"));
+            fail("Artifact resolution did not time out.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESOLUTION_TIMED_OUT.getCode(),
+                    "Unexpected error code.");
+        }
+    }
+
+    private void assertSignedArtifactResponse(ArtifactResponse artifactResponse) {
+
+        assertNotNull(artifactResponse, "Artifact response was not resolved.");
+        assertNotNull(artifactResponse.getSignature(), "Artifact response is not signed.");
+        assertNotNull(artifactResponse.getMessage(), "Artifact response does not contain the SAML response.");
+    }
+
+    private void logThroughput(String mode, int resolutionCount, long elapsedTime) {
+
+        log.info(mode + " artifact resolution: " + resolutionCount + " resolutions in " + elapsedTime + " ms (" +
+                (elapsedTime > 0 ? resolutionCount * 1000 / elapsedTime : resolutionCount) + " per second).");
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
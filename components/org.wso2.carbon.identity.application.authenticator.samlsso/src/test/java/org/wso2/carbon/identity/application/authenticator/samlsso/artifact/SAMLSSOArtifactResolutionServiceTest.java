@@ -21,33 +21,82 @@ package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
 import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
 import org.opensaml.saml.saml2.core.Artifact;
 import org.opensaml.saml.saml2.core.ArtifactResolve;
+import org.opensaml.saml.saml2.core.ArtifactResponse;
 import org.opensaml.saml.saml2.core.Issuer;
 import org.opensaml.saml.saml2.core.impl.ArtifactBuilder;
 import org.opensaml.saml.saml2.core.impl.ArtifactResolveBuilder;
 import org.opensaml.saml.saml2.core.impl.IssuerBuilder;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.ObjectFactory;
 import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
 import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
 import org.wso2.carbon.identity.application.authenticator.samlsso.exception.ArtifactResolutionException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 import org.wso2.carbon.identity.saml.common.util.SAMLInitializer;
+import org.wso2.carbon.utils.CarbonUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
+@PrepareForTest({CarbonUtils.class})
+@PowerMockIgnore({"com.sun.net.httpserver.*", "javax.net.ssl.*"})
 public class SAMLSSOArtifactResolutionServiceTest {
 
+    private static final String ARTIFACT_RESPONSE_ID = "_a6d4a86e63b5d0ba2f8b1c4e0e8e8a31";
+    private static final String SOAP_ARTIFACT_RESPONSE = "<soapenv:Envelope " +
+            "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>" +
+            "<samlp:ArtifactResponse xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" ID=\"" +
+            ARTIFACT_RESPONSE_ID + "\" InResponseTo=\"_0c6b3a6b7f3e4a0c\" IssueInstant=\"2026-01-01T00:00:00Z\" " +
+            "Version=\"2.0\"><samlp:Status><samlp:StatusCode " +
+            "Value=\"urn:oasis:names:tc:SAML:2.0:status:Success\"/></samlp:Status></samlp:ArtifactResponse>" +
+            "</soapenv:Body></soapenv:Envelope>";
+    private static final String SOAP_INVALID_ARTIFACT_RESPONSE = "<soapenv:Envelope " +
+            "xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>" +
+            "<samlp:ArtifactResolve xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" ID=\"_0c6b3a6b7f3e4a0c\" " +
+            "IssueInstant=\"2026-01-01T00:00:00Z\" Version=\"2.0\"/></soapenv:Body></soapenv:Envelope>";
+
+    private static final String ROUTED_IDP_ENTITY_ID = "https://idp.example.com";
+    // Artifacts are rejected before this endpoint would be called.
+    private static final String ROUTED_ARTIFACT_RESOLVE_URL = "https://localhost:1/artifact";
+    private static final int MAX_RESPONSE_SIZE = 65536;
+
     private static ArtifactResolve artifactResolve;
+    private StandInArtifactResolutionServer largeResponseServer;
 
     @BeforeClass
     public void initTest() throws Exception {
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
         SAMLInitializer.doBootstrap();
         XMLObjectProviderRegistrySupport.getBuilderFactory().registerBuilder(ArtifactResolve.DEFAULT_ELEMENT_NAME,
                 new ArtifactResolveBuilder());
         XMLObjectProviderRegistrySupport.getBuilderFactory().registerBuilder(Artifact.DEFAULT_ELEMENT_NAME, new ArtifactBuilder());
         XMLObjectProviderRegistrySupport.getBuilderFactory().registerBuilder(Issuer.DEFAULT_ELEMENT_NAME, new IssuerBuilder());
+
+        largeResponseServer = new StandInArtifactResolutionServer("large-idp");
+        largeResponseServer.start();
+        largeResponseServer.setPaddingSize(MAX_RESPONSE_SIZE * 4);
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        largeResponseServer.stop();
+        ArtifactResolutionHttpClient.getInstance().shutdown();
     }
 
     @Test(priority = 1)
@@ -64,4 +113,94 @@ public class SAMLSSOArtifactResolutionServiceTest {
         assertEquals(artifactResolve.getArtifact().getArtifact(), TestConstants.SAML_ART,
                 "Artifact is not properly set in artifact resolve object.");
     }
+
+    @Test(priority = 2)
+    public void testGetSAMLArtifactResponseAsyncWithoutArtifactResolveUrl() throws Exception {
+
+        Map<String, String> authenticatorProperties = new HashMap<>();
+        authenticatorProperties.put(IdentityApplicationConstants.Authenticator.SAML2SSO.SP_ENTITY_ID,
+                TestConstants.SP_ENTITY_ID);
+        SAMLSSOArtifactResolutionService artifactResolutionService = new SAMLSSOArtifactResolutionService(
+                authenticatorProperties, TestConstants.SUPER_TENANT_DOMAIN);
+
+        CompletableFuture<ArtifactResponse> artifactResponseFuture =
+                artifactResolutionService.getSAMLArtifactResponseAsync(TestConstants.SAML_ART);
+        try {
+            artifactResponseFuture.get();
+            fail("Artifact resolution succeeded without an artifact resolve URL.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ArtifactResolutionException,
+                    "Artifact resolution did not fail with an ArtifactResolutionException.");
+        }
+    }
+
+    @Test(priority = 3)
+    public void testExtractArtifactResponse() throws Exception {
+
+        SAMLSSOArtifactResolutionService artifactResolutionService = new SAMLSSOArtifactResolutionService(
+                new HashMap<>(), TestConstants.SUPER_TENANT_DOMAIN);
+
+        ArtifactResponse artifactResponse = artifactResolutionService.extractArtifactResponse(SOAP_ARTIFACT_RESPONSE);
+        assertEquals(artifactResponse.getID(), ARTIFACT_RESPONSE_ID, "Failed to extract the artifact response.");
+    }
+
+    @Test(priority = 4, expectedExceptions = ArtifactResolutionException.class)
+    public void testExtractInvalidArtifactResponse() throws Exception {
+
+        SAMLSSOArtifactResolutionService artifactResolutionService = new SAMLSSOArtifactResolutionService(
+                new HashMap<>(), TestConstants.SUPER_TENANT_DOMAIN);
+        artifactResolutionService.extractArtifactResponse(SOAP_INVALID_ARTIFACT_RESPONSE);
+    }
+
+    @Test(priority = 5)
+    public void testRejectInvalidArtifact() throws Exception {
+
+        try {
+            getRoutedArtifactResolutionService().getSAMLArtifactResponse("AAQAAA==");
+            fail("Invalid artifact was not rejected.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.INVALID_SAML_ARTIFACT.getCode(), "Unexpected error code.");
+        }
+    }
+
+    @Test(priority = 6)
+    public void testRejectArtifactWithUnknownSourceId() throws Exception {
+
+        try {
+            getRoutedArtifactResolutionService().getSAMLArtifactResponse(
+                    TestUtils.buildSAMLArtifact("https://unknown.example.com"));
+            fail("Artifact with an unknown SourceID was not rejected.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.UNKNOWN_SAML_ARTIFACT_SOURCE_ID.getCode(),
+                    "Unexpected error code.");
+        }
+    }
+
+    @Test(priority = 7)
+    public void testResponseExceedingMaxSizeIsRejected() throws Exception {
+
+        mockStatic(CarbonUtils.class);
+        when(CarbonUtils.getServerConfiguration()).thenReturn(null);
+        SAMLSSOArtifactResolutionService artifactResolutionService =
+                StandInArtifactResolutionServer.getArtifactResolutionService("large-idp", largeResponseServer.getUrl());
+        try {
+            artifactResolutionService.getSAMLArtifactResponse(TestUtils.buildSAMLArtifact("large-idp"));
+            fail("Artifact response exceeding the maximum size was accepted.");
+        } catch (ArtifactResolutionException e) {
+            assertEquals(e.getErrorCode(), ErrorMessages.ARTIFACT_RESPONSE_SIZE_EXCEEDED.getCode(),
+                    "Unexpected error code.");
+        }
+    }
+
+    private SAMLSSOArtifactResolutionService getRoutedArtifactResolutionService() {
+
+        return StandInArtifactResolutionServer.getArtifactResolutionService(ROUTED_IDP_ENTITY_ID,
+                ROUTED_ARTIFACT_RESOLVE_URL);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
 }
@@ -0,0 +1,395 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.artifact;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.joda.time.DateTime;
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.core.xml.config.XMLObjectProviderRegistrySupport;
+import org.opensaml.saml.common.SAMLObject;
+import org.opensaml.saml.common.SAMLObjectBuilder;
+import org.opensaml.saml.common.SAMLVersion;
+import org.opensaml.saml.saml2.core.ArtifactResolve;
+import org.opensaml.saml.saml2.core.ArtifactResponse;
+import org.opensaml.saml.saml2.core.Issuer;
+import org.opensaml.saml.saml2.core.Status;
+import org.opensaml.saml.saml2.core.StatusCode;
+import org.opensaml.security.x509.BasicX509Credential;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.soap.soap11.Envelope;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.namespace.QName;
+
+/**
+ * Stand-in for the artifact resolution service of an identity provider, for load and integration tests. It answers
+ * ArtifactResolve SOAP requests with ArtifactResponses signed with the test keystore, which carry the SAML response
+ * of {@link TestConstants#SAML_RESPONSE}. A latency and a failure rate can be injected, the responses can be padded
+ * beyond a given size, and the stand-in can be stalled so that it holds the requests until it is released.
+ */
+public class StandInArtifactResolutionServer {
+
+    private static final String ARTIFACT_RESOLVE_PATH = "/samlartresolve";
+    private static final String SIGNATURE_ALGORITHM = "http://www.w3.org/2001/04/xmldsig-more#rsa-sha256";
+    private static final String DIGEST_ALGORITHM = "http://www.w3.org/2001/04/xmlenc#sha256";
+    private static final String CONTENT_TYPE = "text/xml; charset=UTF-8";
+    private static final byte[] PADDING = "<!-- padding -->".getBytes(StandardCharsets.UTF_8);
+    // Stalled requests are released at the latest after this time, so that a failed test does not hold them.
+    private static final long MAX_STALL_TIME = 60000;
+
+    private final String issuer;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger responseCount = new AtomicInteger();
+    private final AtomicInteger failureCount = new AtomicInteger();
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private volatile long latency;
+    private volatile double failureRate;
+    private volatile int failureStatus = 500;
+    private volatile int paddingSize;
+    private volatile CountDownLatch stall;
+    private X509Credential credential;
+    private HttpServer server;
+    private ExecutorService executorService;
+
+    /**
+     * Create a stand-in artifact resolution service.
+     *
+     * @param issuer Entity ID of the identity provider, set as the issuer of the artifact responses.
+     */
+    public StandInArtifactResolutionServer(String issuer) {
+
+        this.issuer = issuer;
+    }
+
+    /**
+     * Start the stand-in on a free port of the loopback interface. OpenSAML must be bootstrapped beforehand.
+     */
+    public void start() throws Exception {
+
+        KeyStore keyStore = SSOUtils.loadKeyStoreFromFileSystem(TestUtils.getFilePath("wso2carbon.jks"),
+                TestConstants.KEY_STORE_PASSWORD, "JKS");
+        credential = new BasicX509Credential((X509Certificate) keyStore.getCertificate(TestConstants.KEY_ALIAS),
+                (PrivateKey) keyStore.getKey(TestConstants.KEY_ALIAS, TestConstants.KEY_PASSWORD.toCharArray()));
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(ARTIFACT_RESOLVE_PATH, this::handle);
+        executorService = Executors.newCachedThreadPool();
+        server.setExecutor(executorService);
+        server.start();
+    }
+
+    /**
+     * Stop the stand-in.
+     */
+    public void stop() {
+
+        release();
+        if (server != null) {
+            server.stop(0);
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the URL of the artifact resolve endpoint of the stand-in.
+     *
+     * @return Artifact resolve URL.
+     */
+    public String getUrl() {
+
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() +
+                ARTIFACT_RESOLVE_PATH;
+    }
+
+    /**
+     * Set the time taken to answer each request.
+     *
+     * @param latency Latency in milliseconds.
+     */
+    public void setLatency(long latency) {
+
+        this.latency = latency;
+    }
+
+    /**
+     * Set the fraction of the requests which are answered with the failure status.
+     *
+     * @param failureRate Failure rate, between 0 and 1.
+     */
+    public void setFailureRate(double failureRate) {
+
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Set the HTTP status of the failed requests.
+     *
+     * @param failureStatus HTTP status.
+     */
+    public void setFailureStatus(int failureStatus) {
+
+        this.failureStatus = failureStatus;
+    }
+
+    /**
+     * Pad the artifact responses with XML comments beyond the given size. Padded responses are chunked, so that
+     * their size is known only while they are read.
+     *
+     * @param paddingSize Size of the padding in bytes, or 0 to send the responses without padding.
+     */
+    public void setPaddingSize(int paddingSize) {
+
+        this.paddingSize = paddingSize;
+    }
+
+    /**
+     * Hold the requests received from now on, until {@link #release()} is called.
+     */
+    public void stall() {
+
+        stall = new CountDownLatch(1);
+    }
+
+    /**
+     * Answer the held requests and stop holding the requests.
+     */
+    public void release() {
+
+        CountDownLatch currentStall = stall;
+        stall = null;
+        if (currentStall != null) {
+            currentStall.countDown();
+        }
+    }
+
+    public int getRequestCount() {
+
+        return requestCount.get();
+    }
+
+    /**
+     * Get the number of requests which have been answered, with a successful or a failed response.
+     *
+     * @return Number of answered requests.
+     */
+    public int getResponseCount() {
+
+        return responseCount.get();
+    }
+
+    public int getFailureCount() {
+
+        return failureCount.get();
+    }
+
+    /**
+     * Get the highest number of requests which were being handled at the same time.
+     *
+     * @return Highest number of concurrent requests.
+     */
+    public int getMaxConcurrentRequests() {
+
+        return maxConcurrentRequests.get();
+    }
+
+    /**
+     * Start counting the highest number of concurrent requests again.
+     */
+    public void resetMaxConcurrentRequests() {
+
+        maxConcurrentRequests.set(concurrentRequests.get());
+    }
+
+    /**
+     * Get the authenticator properties of an identity provider in the super tenant, which resolves the artifacts at
+     * the given endpoints.
+     *
+     * @param idpEntityId         Entity ID of the identity provider.
+     * @param artifactResolveUrls Comma separated artifact resolve URLs of the identity provider.
+     * @return Authenticator properties.
+     */
+    public static Map<String, String> getAuthenticatorProperties(String idpEntityId, String artifactResolveUrls) {
+
+        Map<String, String> authenticatorProperties = new HashMap<>();
+        authenticatorProperties.put(IdentityApplicationConstants.Authenticator.SAML2SSO.SP_ENTITY_ID,
+                TestConstants.SP_ENTITY_ID);
+        authenticatorProperties.put(IdentityApplicationConstants.Authenticator.SAML2SSO.IDP_ENTITY_ID, idpEntityId);
+        authenticatorProperties.put(IdentityApplicationConstants.Authenticator.SAML2SSO.ARTIFACT_RESOLVE_URL,
+                artifactResolveUrls);
+        return authenticatorProperties;
+    }
+
+    /**
+     * Get an artifact resolution service for the given authenticator properties in the super tenant.
+     *
+     * @param authenticatorProperties Authenticator properties of the identity provider.
+     * @return Artifact resolution service.
+     */
+    public static SAMLSSOArtifactResolutionService getArtifactResolutionService(
+            Map<String, String> authenticatorProperties) {
+
+        return new SAMLSSOArtifactResolutionService(authenticatorProperties, TestConstants.SUPER_TENANT_DOMAIN);
+    }
+
+    /**
+     * Get an artifact resolution service of an identity provider in the super tenant, which resolves the artifacts at
+     * the given endpoints.
+     *
+     * @param idpEntityId         Entity ID of the identity provider.
+     * @param artifactResolveUrls Comma separated artifact resolve URLs of the identity provider.
+     * @return Artifact resolution service.
+     */
+    public static SAMLSSOArtifactResolutionService getArtifactResolutionService(String idpEntityId,
+                                                                                String artifactResolveUrls) {
+
+        return getArtifactResolutionService(getAuthenticatorProperties(idpEntityId, artifactResolveUrls));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        requestCount.incrementAndGet();
+        maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+        try {
+            String request = readRequest(exchange);
+            CountDownLatch currentStall = stall;
+            if (currentStall != null) {
+                currentStall.await(MAX_STALL_TIME, TimeUnit.MILLISECONDS);
+            }
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failureCount.incrementAndGet();
+                sendResponse(exchange, failureStatus, new byte[0]);
+                return;
+            }
+            byte[] artifactResponse = buildArtifactResponse(request).getBytes(StandardCharsets.UTF_8);
+            if (paddingSize > 0) {
+                sendPaddedResponse(exchange, artifactResponse);
+            } else {
+                sendResponse(exchange, 200, artifactResponse);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } catch (IOException e) {
+            // The client has aborted the request.
+            exchange.close();
+        } catch (Exception e) {
+            failureCount.incrementAndGet();
+            sendResponse(exchange, 500, new byte[0]);
+        } finally {
+            concurrentRequests.decrementAndGet();
+        }
+    }
+
+    private void sendPaddedResponse(HttpExchange exchange, byte[] artifactResponse) throws IOException {
+
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        responseCount.incrementAndGet();
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(artifactResponse);
+            for (int size = 0; size <= paddingSize; size += PADDING.length) {
+                outputStream.write(PADDING);
+            }
+        }
+    }
+
+    private String buildArtifactResponse(String request) throws Exception {
+
+        XMLObject envelope = TestUtils.unmarshall(request);
+        ArtifactResolve artifactResolve = (ArtifactResolve) ((Envelope) envelope).getBody()
+                .getUnknownXMLObjects().get(0);
+
+        ArtifactResponse artifactResponse = buildObject(ArtifactResponse.DEFAULT_ELEMENT_NAME);
+        artifactResponse.setVersion(SAMLVersion.VERSION_20);
+        artifactResponse.setID("_" + UUID.randomUUID().toString());
+        artifactResponse.setInResponseTo(artifactResolve.getID());
+        artifactResponse.setIssueInstant(new DateTime());
+
+        Issuer responseIssuer = buildObject(Issuer.DEFAULT_ELEMENT_NAME);
+        responseIssuer.setValue(issuer);
+        artifactResponse.setIssuer(responseIssuer);
+
+        StatusCode statusCode = buildObject(StatusCode.DEFAULT_ELEMENT_NAME);
+        statusCode.setValue(StatusCode.SUCCESS);
+        Status status = buildObject(Status.DEFAULT_ELEMENT_NAME);
+        status.setStatusCode(statusCode);
+        artifactResponse.setStatus(status);
+        artifactResponse.setMessage((SAMLObject) TestUtils.unmarshall(TestConstants.SAML_RESPONSE));
+
+        SSOUtils.doSetSignature(artifactResponse, SIGNATURE_ALGORITHM, DIGEST_ALGORITHM, true, credential);
+        return SSOUtils.marshall(new SAMLSSOSoapMessageService().buildSOAPMessage(artifactResponse));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends SAMLObject> T buildObject(QName elementName) {
+
+        return ((SAMLObjectBuilder<T>) XMLObjectProviderRegistrySupport.getBuilderFactory().getBuilder(elementName))
+                .buildObject();
+    }
+
+    private static String readRequest(HttpExchange exchange) throws IOException {
+
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        try (InputStream inputStream = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                request.write(buffer, 0, count);
+            }
+        }
+        return new String(request.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void sendResponse(HttpExchange exchange, int status, byte[] response) throws IOException {
+
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, response.length > 0 ? response.length : -1);
+        responseCount.incrementAndGet();
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(response);
+        }
+    }
+}
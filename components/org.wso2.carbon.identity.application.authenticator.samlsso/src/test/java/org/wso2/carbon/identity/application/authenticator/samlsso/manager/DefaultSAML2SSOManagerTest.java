@@ -22,7 +22,11 @@ import org.apache.commons.lang.StringUtils;
 import org.mockito.Mock;
 import org.opensaml.core.xml.XMLObject;
 import org.opensaml.saml.common.xml.SAMLConstants;
+import org.opensaml.saml.saml2.core.AuthnContext;
+import org.opensaml.saml.saml2.core.AuthnContextComparisonTypeEnumeration;
 import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.Extensions;
+import org.opensaml.saml.saml2.core.RequestedAuthnContext;
 import org.opensaml.security.x509.X509Credential;
 import org.opensaml.xmlsec.signature.impl.SignatureImpl;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
@@ -32,6 +36,7 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.ObjectFactory;
 import org.testng.annotations.Test;
+import org.w3c.dom.Element;
 import org.w3c.dom.bootstrap.DOMImplementationRegistry;
 import org.wso2.carbon.core.util.KeyStoreManager;
 import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
@@ -70,8 +75,16 @@ import javax.servlet.http.HttpServletRequest;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPathFactory;
 
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
+import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.spy;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
 import static org.powermock.api.mockito.PowerMockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -81,6 +94,7 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import static org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants.InboundRequestData.INBOUND_LOGOUT_REQUEST;
 import static org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants.InboundRequestData.INBOUND_POST_REQUEST;
+import static org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants.InboundRequestData.INBOUND_POST_REQUEST_WITH_EXTENSIONS;
 import static org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants.InboundRequestData.INBOUND_REDIRECT_REQUEST;
 import static org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants.InboundRequestData.OUTBOUND_POST_REQUEST_AUTH_CONFIG_ACS_EMPTY;
 import static org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants.InboundRequestData.OUTBOUND_POST_REQUEST_AUTH_CONFIG_AVAILABLE;
@@ -124,7 +138,7 @@ import static org.wso2.carbon.utils.multitenancy.MultitenantConstants.SUPER_TENA
 @PowerMockIgnore({"javax.xml.datatype.*"})
 @PrepareForTest({FileBasedConfigurationBuilder.class, IdentityUtil.class, DocumentBuilderFactory.class,
         KeyStoreManager.class, DOMImplementationRegistry.class, XPathFactory.class, FrameworkUtils.class,
-        ServiceURLBuilder.class})
+        ServiceURLBuilder.class, SSOUtils.class})
 public class DefaultSAML2SSOManagerTest {
 
     @Mock
@@ -524,6 +538,61 @@ public class DefaultSAML2SSOManagerTest {
         }
     }
 
+    @Test
+    public void testBuildAuthnRequestUnmarshallsInboundRequestOnce() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        doNothing().when(FrameworkUtils.class, TestConstants.END_TENANT_FLOW);
+
+        DefaultSAML2SSOManager.doBootstrap();
+        mockXPathFactory();
+
+        Map<String, String> authenticatorProperties = new HashMap<>();
+        authenticatorProperties.put(IdentityApplicationConstants.Authenticator.SAML2SSO.INCLUDE_AUTHN_CONTEXT,
+                "as_request");
+        RequestData outboundData = OUTBOUND_POST_REQUEST_UNSIGNED.getRequestData();
+        setParametersForBuildAuthnRequest(false, outboundData, INBOUND_POST_REQUEST_WITH_EXTENSIONS.getRequestData(),
+                authenticatorProperties);
+        String samlRequest = mockedAuthenticationRequest.getRequestQueryParam(
+                SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ)[0];
+
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter(SSOConstants.HTTP_POST_PARAM_SAML2_AUTH_REQ)).thenReturn(samlRequest);
+        when(request.getMethod()).thenReturn(SSOConstants.HTTP_POST);
+
+        spy(SSOUtils.class);
+        DefaultSAML2SSOManager defaultSAML2SSOManager = new DefaultSAML2SSOManager();
+        defaultSAML2SSOManager.init(SUPER_TENANT_DOMAIN_NAME, authenticatorProperties, mockedIdentityProvider);
+        AuthnRequest authnRequest = defaultSAML2SSOManager.buildAuthnRequest(request, false, TestConstants.IDP_URL,
+                mockedAuthenticationContext);
+
+        verifyStatic(times(1));
+        SSOUtils.unmarshallInboundMessage(anyString(), anyBoolean());
+
+        assertNotNull(authnRequest.getRequestedAuthnContext(), "Failed to copy the requested authn context.");
+        assertNotNull(authnRequest.getExtensions(), "Failed to copy the extensions.");
+
+        // Marshall and read back the request to check the copied elements as sent to the IdP.
+        AuthnRequest sentAuthnRequest = (AuthnRequest) TestUtils.unmarshall(SSOUtils.marshall(authnRequest));
+        RequestedAuthnContext requestedAuthnContext = sentAuthnRequest.getRequestedAuthnContext();
+        assertNotNull(requestedAuthnContext, "Requested authn context is missing in the sent request.");
+        assertEquals(requestedAuthnContext.getComparison(), AuthnContextComparisonTypeEnumeration.EXACT,
+                "Failed to copy the authn context comparison.");
+        assertEquals(requestedAuthnContext.getAuthnContextClassRefs().size(), 1,
+                "Failed to copy the authn context class reference.");
+        assertEquals(requestedAuthnContext.getAuthnContextClassRefs().get(0).getAuthnContextClassRef(),
+                AuthnContext.PPT_AUTHN_CTX, "Failed to copy the authn context class reference.");
+
+        Extensions extensions = sentAuthnRequest.getExtensions();
+        assertNotNull(extensions, "Extensions are missing in the sent request.");
+        assertEquals(extensions.getUnknownXMLObjects().size(), 1, "Failed to copy the extension.");
+        Element extension = extensions.getUnknownXMLObjects().get(0).getDOM();
+        assertEquals(extension.getNamespaceURI(), TestConstants.INBOUND_EXTENSION_NAMESPACE,
+                "Failed to copy the extension.");
+        assertEquals(extension.getTextContent(), TestConstants.INBOUND_EXTENSION_VALUE,
+                "Failed to copy the extension.");
+    }
+
     @DataProvider(name = "logoutRequestBuilderDataProvider")
     public Object[][] logoutRequestBuilderData() {
 
@@ -550,6 +619,22 @@ public class DefaultSAML2SSOManagerTest {
         defaultSAML2SSOManager.doSLO(mockedHttpServletRequest);
     }
 
+    @Test(dataProvider = "logoutRequestBuilderDataProvider")
+    public void testDoSLOWithUnmarshalledMessage(Object requestData) throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+
+        mockXPathFactory();
+
+        XMLObject samlObject = SSOUtils.unmarshallInboundMessage(buildSAMLRequest(true, (RequestData) requestData),
+                true);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        DefaultSAML2SSOManager defaultSAML2SSOManager = new DefaultSAML2SSOManager();
+        defaultSAML2SSOManager.doSLO(request, samlObject);
+        verify(request, never()).getParameter(anyString());
+    }
+
     @ObjectFactory
     public IObjectFactory getObjectFactory() {
         return new org.powermock.modules.testng.PowerMockObjectFactory();
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.mockito.Mock;
+import org.opensaml.saml.saml2.core.Assertion;
+import org.opensaml.saml.saml2.core.EncryptedAssertion;
+import org.opensaml.saml.saml2.encryption.Encrypter;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.encryption.support.DataEncryptionParameters;
+import org.opensaml.xmlsec.encryption.support.EncryptionConstants;
+import org.opensaml.xmlsec.encryption.support.KeyEncryptionParameters;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.internal.SAMLSSOAuthenticatorServiceDataHolder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.powermock.api.mockito.PowerMockito.doNothing;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit tests for EncryptedAssertionDecrypter.
+ */
+@PrepareForTest({KeyStoreManager.class, FrameworkUtils.class})
+public class EncryptedAssertionDecrypterTest {
+
+    private static final String TENANT_DOMAIN = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+    private static final String ASSERTION = "<saml:Assertion xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" " +
+            "ID=\"%s\" Version=\"2.0\" IssueInstant=\"2026-01-01T00:00:00Z\"><saml:Issuer>idp1</saml:Issuer>" +
+            "</saml:Assertion>";
+    private static final int THREAD_COUNT = 8;
+    private static final int ASSERTION_COUNT = 64;
+
+    @Mock
+    private RealmService realmService;
+
+    @Mock
+    private KeyStoreManager keyStoreManager;
+
+    @Mock
+    private TenantManager tenantManager;
+
+    private PrivateKey key;
+
+    private X509Certificate certificate;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+        DefaultSAML2SSOManager.doBootstrap();
+        SAMLSSOAuthenticatorServiceDataHolder.getInstance().setRealmService(realmService);
+        when(realmService.getTenantManager()).thenReturn(tenantManager);
+        when(tenantManager.getTenantId(TENANT_DOMAIN)).thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+
+        KeyStore keyStore = SSOUtils.loadKeyStoreFromFileSystem(TestUtils.getFilePath("wso2carbon.jks"),
+                TestConstants.KEY_STORE_PASSWORD, "JKS");
+        key = (PrivateKey) keyStore.getKey(TestConstants.KEY_ALIAS, TestConstants.KEY_PASSWORD.toCharArray());
+        certificate = (X509Certificate) keyStore.getCertificate(TestConstants.KEY_ALIAS);
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        doNothing().when(FrameworkUtils.class, TestConstants.END_TENANT_FLOW);
+        mockStatic(KeyStoreManager.class);
+        when(KeyStoreManager.getInstance(MultitenantConstants.SUPER_TENANT_ID)).thenReturn(keyStoreManager);
+        when(keyStoreManager.getDefaultPrivateKey()).thenReturn(key);
+        when(keyStoreManager.getDefaultPrimaryCertificate()).thenReturn(certificate);
+        X509CredentialCache.getInstance().invalidateAll();
+    }
+
+    @Test
+    public void testDecrypterIsReused() throws Exception {
+
+        EncryptedAssertionDecrypter assertionDecrypter = EncryptedAssertionDecrypter.getInstance(TENANT_DOMAIN);
+
+        assertSame(EncryptedAssertionDecrypter.getInstance(TENANT_DOMAIN), assertionDecrypter,
+                "Decrypter of the tenant was built again.");
+    }
+
+    @Test
+    public void testDecrypterIsRebuiltWhenCredentialChanges() throws Exception {
+
+        EncryptedAssertionDecrypter assertionDecrypter = EncryptedAssertionDecrypter.getInstance(TENANT_DOMAIN);
+        assertionDecrypter.decrypt(encrypt("_rebuilt"), false);
+        EncryptedAssertionDecrypter.DecryptionStats stats = EncryptedAssertionDecrypter.getDecryptionStats(
+                TENANT_DOMAIN);
+        long decryptionCount = stats.getDecryptionCount();
+
+        X509CredentialCache.getInstance().invalidate(TENANT_DOMAIN);
+        EncryptedAssertionDecrypter rebuiltDecrypter = EncryptedAssertionDecrypter.getInstance(TENANT_DOMAIN);
+
+        assertNotSame(rebuiltDecrypter, assertionDecrypter,
+                "Decrypter was not rebuilt after the signing credential changed.");
+        assertEquals(rebuiltDecrypter.decrypt(encrypt("_rebuilt"), false).getID(), "_rebuilt",
+                "Failed to decrypt the assertion with the rebuilt decrypter.");
+        assertSame(EncryptedAssertionDecrypter.getDecryptionStats(TENANT_DOMAIN), stats,
+                "Decryption statistics of the tenant were not kept.");
+        assertEquals(stats.getDecryptionCount(), decryptionCount + 1, "Unexpected decryption count.");
+    }
+
+    @Test
+    public void testConcurrentDecryption() throws Exception {
+
+        List<EncryptedAssertion> encryptedAssertions = new ArrayList<>();
+        for (int i = 0; i < ASSERTION_COUNT; i++) {
+            encryptedAssertions.add(encrypt("_assertion" + i));
+        }
+        EncryptedAssertionDecrypter assertionDecrypter = EncryptedAssertionDecrypter.getInstance(TENANT_DOMAIN);
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<Assertion>> assertions = new ArrayList<>();
+            for (EncryptedAssertion encryptedAssertion : encryptedAssertions) {
+                assertions.add(threadPool.submit(() -> assertionDecrypter.decrypt(encryptedAssertion, true)));
+            }
+            for (int i = 0; i < ASSERTION_COUNT; i++) {
+                assertEquals(assertions.get(i).get().getID(), "_assertion" + i,
+                        "Assertion was not decrypted correctly by the shared decrypter.");
+            }
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    private EncryptedAssertion encrypt(String assertionId) throws Exception {
+
+        X509Credential credential = X509CredentialCache.getInstance().getCredential(TENANT_DOMAIN);
+        DataEncryptionParameters dataEncryptionParameters = new DataEncryptionParameters();
+        dataEncryptionParameters.setAlgorithm(EncryptionConstants.ALGO_ID_BLOCKCIPHER_AES128);
+        KeyEncryptionParameters keyEncryptionParameters = new KeyEncryptionParameters();
+        keyEncryptionParameters.setEncryptionCredential(credential);
+        keyEncryptionParameters.setAlgorithm(EncryptionConstants.ALGO_ID_KEYTRANSPORT_RSAOAEP);
+
+        Encrypter encrypter = new Encrypter(dataEncryptionParameters, keyEncryptionParameters);
+        encrypter.setKeyPlacement(Encrypter.KeyPlacement.INLINE);
+        return encrypter.encrypt((Assertion) SSOUtils.unmarshall(String.format(ASSERTION, assertionId)));
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.apache.commons.codec.binary.Base64;
+import org.opensaml.security.x509.X509Credential;
+import org.opensaml.xmlsec.signature.KeyInfo;
+import org.opensaml.xmlsec.signature.X509Certificate;
+import org.opensaml.xmlsec.signature.X509Data;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+import org.wso2.carbon.identity.application.common.model.CertificateInfo;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit tests for IdPCertificateCache.
+ */
+public class IdPCertificateCacheTest {
+
+    // Alias of a certificate of the test keystore, other than the one of TestConstants.IDP_CERTIFICATE.
+    private static final String OTHER_CERTIFICATE_ALIAS = "verisignclass3ca";
+
+    private IdPCertificateCache certificateCache = IdPCertificateCache.getInstance();
+
+    private String otherCertificate;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        KeyStore keyStore = SSOUtils.loadKeyStoreFromFileSystem(TestUtils.getFilePath("wso2carbon.jks"),
+                TestConstants.KEY_STORE_PASSWORD, "JKS");
+        otherCertificate = Base64.encodeBase64String(keyStore.getCertificate(OTHER_CERTIFICATE_ALIAS).getEncoded());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        certificateCache.invalidateAll();
+    }
+
+    @Test
+    public void testGetCredentialsFromCache() throws Exception {
+
+        IdentityProvider identityProvider = getIdentityProvider(TestConstants.IDP_CERTIFICATE);
+
+        List<X509Credential> credentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider);
+        List<X509Credential> cachedCredentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider);
+
+        assertEquals(credentials.size(), 1, "Unexpected number of credentials.");
+        assertSame(cachedCredentials.get(0), credentials.get(0), "Certificate was parsed again.");
+        assertEquals(certificateCache.size(), 1, "Unexpected number of cached certificates.");
+    }
+
+    @Test
+    public void testCertificateListChange() throws Exception {
+
+        List<X509Credential> credentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                getIdentityProvider(TestConstants.IDP_CERTIFICATE));
+
+        // Same certificate in a different format, which results in a different fingerprint.
+        String updatedCertificate = TestConstants.IDP_CERTIFICATE.replace("\n", "");
+        List<X509Credential> updatedCredentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                getIdentityProvider(updatedCertificate));
+
+        assertNotSame(updatedCredentials.get(0), credentials.get(0), "Removed certificate was served from the cache.");
+        assertEquals(updatedCredentials.get(0).getEntityCertificate(), credentials.get(0).getEntityCertificate(),
+                "Failed to parse the updated certificate.");
+        assertEquals(certificateCache.size(), 1, "Removed certificate was not dropped from the cache.");
+    }
+
+    @Test
+    public void testLastVerifiedCertificateFirst() throws Exception {
+
+        // Same certificate in a different format, which results in a different fingerprint.
+        IdentityProvider identityProvider = getIdentityProvider(TestConstants.IDP_CERTIFICATE,
+                TestConstants.IDP_CERTIFICATE.replace("\n", ""));
+
+        List<X509Credential> credentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider);
+        certificateCache.recordValidation(TestConstants.SUPER_TENANT_DOMAIN, identityProvider, credentials.get(1), 1);
+        List<X509Credential> reorderedCredentials = certificateCache.getCredentials(
+                TestConstants.SUPER_TENANT_DOMAIN, identityProvider);
+        certificateCache.recordValidation(TestConstants.SUPER_TENANT_DOMAIN, identityProvider,
+                reorderedCredentials.get(0), 0);
+
+        assertSame(reorderedCredentials.get(0), credentials.get(1), "Last verified certificate was not tried first.");
+        assertSame(reorderedCredentials.get(1), credentials.get(0), "Unexpected order of the other certificates.");
+        IdPCertificateCache.ValidationStats stats = certificateCache.getValidationStats(
+                TestConstants.SUPER_TENANT_DOMAIN, TestConstants.IDP_NAME);
+        assertEquals(stats.getValidationCount(), 2, "Unexpected validation count.");
+        assertEquals(stats.getFallbackCount(), 1, "Unexpected fallback count.");
+    }
+
+    @Test
+    public void testKeyInfoCertificateFirst() throws Exception {
+
+        IdentityProvider identityProvider = getIdentityProvider(TestConstants.IDP_CERTIFICATE, otherCertificate);
+        List<X509Credential> credentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider);
+        certificateCache.recordValidation(TestConstants.SUPER_TENANT_DOMAIN, identityProvider, credentials.get(0), 0);
+
+        List<X509Credential> keyInfoCredentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider, getKeyInfo(otherCertificate));
+
+        assertEquals(keyInfoCredentials.size(), 2, "Unexpected number of credentials.");
+        assertSame(keyInfoCredentials.get(0), credentials.get(1),
+                "Certificate named by the KeyInfo of the signature was not tried first.");
+        assertSame(keyInfoCredentials.get(1), credentials.get(0), "Other certificate was not kept as a fallback.");
+    }
+
+    @Test
+    public void testKeyInfoWithoutMatchingCertificate() throws Exception {
+
+        IdentityProvider identityProvider = getIdentityProvider(TestConstants.IDP_CERTIFICATE, otherCertificate);
+        List<X509Credential> credentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider);
+
+        // Certificate which is not configured for the identity provider.
+        List<X509Credential> keyInfoCredentials = certificateCache.getCredentials(TestConstants.SUPER_TENANT_DOMAIN,
+                identityProvider, getKeyInfo(Base64.encodeBase64String("untrusted".getBytes())));
+
+        assertEquals(keyInfoCredentials, credentials,
+                "Configured certificates were not returned in order when the KeyInfo matches none of them.");
+    }
+
+    private KeyInfo getKeyInfo(String certificate) {
+
+        X509Certificate x509Certificate = mock(X509Certificate.class);
+        when(x509Certificate.getValue()).thenReturn(certificate);
+        X509Data x509Data = mock(X509Data.class);
+        when(x509Data.getX509Certificates()).thenReturn(Collections.singletonList(x509Certificate));
+        KeyInfo keyInfo = mock(KeyInfo.class);
+        when(keyInfo.getX509Datas()).thenReturn(Collections.singletonList(x509Data));
+        return keyInfo;
+    }
+
+    private IdentityProvider getIdentityProvider(String... certificates) {
+
+        CertificateInfo[] certificateInfos = new CertificateInfo[certificates.length];
+        for (int i = 0; i < certificates.length; i++) {
+            certificateInfos[i] = new CertificateInfo();
+            certificateInfos[i].setCertValue(certificates[i]);
+        }
+        IdentityProvider identityProvider = mock(IdentityProvider.class);
+        when(identityProvider.getIdentityProviderName()).thenReturn(TestConstants.IDP_NAME);
+        when(identityProvider.getCertificateInfoArray()).thenReturn(certificateInfos);
+        return identityProvider;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.mockito.Mock;
+import org.opensaml.security.x509.X509Credential;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.base.ServerConfiguration;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.internal.SAMLSSOAuthenticatorServiceDataHolder;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for SAMLSignKeyStoreHolder.
+ */
+@PrepareForTest({ServerConfiguration.class, KeyStoreManager.class})
+public class SAMLSignKeyStoreHolderTest {
+
+    private static final String KEY_STORE_NAME = "saml-sign.jks";
+    // Alias of a certificate of the test keystore, other than the one of the signing key.
+    private static final String OTHER_CERTIFICATE_ALIAS = "verisignclass3ca";
+    private static final int THREAD_COUNT = 8;
+    private static final long RELOAD_TIMEOUT = 30;
+    private static final long LOAD_DELAY = 200;
+
+    @Mock
+    private ServerConfiguration serverConfiguration;
+
+    @Mock
+    private RealmService realmService;
+
+    @Mock
+    private TenantManager tenantManager;
+
+    private SAMLSignKeyStoreHolder keyStoreHolder = SAMLSignKeyStoreHolder.getInstance();
+
+    private Path keyStoreDirectory;
+
+    private Path keyStorePath;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+        SAMLSSOAuthenticatorServiceDataHolder.getInstance().setRealmService(realmService);
+        when(realmService.getTenantManager()).thenReturn(tenantManager);
+        when(tenantManager.getTenantId(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME))
+                .thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        keyStoreDirectory = Files.createTempDirectory("samlsign");
+        keyStorePath = keyStoreDirectory.resolve(KEY_STORE_NAME);
+        Files.copy(Paths.get(TestUtils.getFilePath("wso2carbon.jks")), keyStorePath,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        mockStatic(ServerConfiguration.class);
+        when(ServerConfiguration.getInstance()).thenReturn(serverConfiguration);
+        when(serverConfiguration.getFirstProperty(X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_LOCATION))
+                .thenReturn(keyStorePath.toString());
+        when(serverConfiguration.getFirstProperty(X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_TYPE))
+                .thenReturn("JKS");
+        when(serverConfiguration.getFirstProperty(X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_PASSWORD))
+                .thenReturn(TestConstants.KEY_STORE_PASSWORD);
+        when(serverConfiguration.getFirstProperty(X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_KEY_ALIAS))
+                .thenReturn(TestConstants.KEY_ALIAS);
+        when(serverConfiguration.getFirstProperty(X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_KEY_PASSWORD))
+                .thenReturn(TestConstants.KEY_PASSWORD);
+        mockStatic(KeyStoreManager.class);
+
+        keyStoreHolder.shutdown();
+        X509CredentialCache.getInstance().invalidateAll();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+
+        keyStoreHolder.shutdown();
+        X509CredentialCache.getInstance().invalidateAll();
+        Files.deleteIfExists(keyStorePath);
+        Files.deleteIfExists(keyStoreDirectory);
+    }
+
+    @Test
+    public void testConcurrentLoadsShareOneKeyStore() throws Exception {
+
+        // The keystore password is read once per load. The slow read keeps the other threads waiting on the load.
+        AtomicInteger loadCount = new AtomicInteger();
+        when(serverConfiguration.getFirstProperty(X509CredentialImpl.SECURITY_SAML_SIGN_KEY_STORE_PASSWORD))
+                .thenAnswer(invocation -> {
+                    loadCount.incrementAndGet();
+                    Thread.sleep(LOAD_DELAY);
+                    return TestConstants.KEY_STORE_PASSWORD;
+                });
+
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService threadPool = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<KeyStore>> keyStores = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                keyStores.add(threadPool.submit(() -> {
+                    startLatch.await();
+                    return keyStoreHolder.getKeyStore();
+                }));
+            }
+            startLatch.countDown();
+
+            KeyStore keyStore = keyStores.get(0).get();
+            for (Future<KeyStore> otherKeyStore : keyStores) {
+                assertSame(otherKeyStore.get(), keyStore, "Threads did not get the same SAML sign keystore.");
+            }
+            assertEquals(loadCount.get(), 1, "SAML sign keystore was loaded more than once.");
+            assertSame(keyStoreHolder.getKeyStore(), keyStore, "SAML sign keystore was loaded again.");
+            assertEquals(loadCount.get(), 1, "SAML sign keystore was loaded again.");
+        } finally {
+            threadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReloadOnKeyStoreChange() throws Exception {
+
+        X509CredentialCache credentialCache = X509CredentialCache.getInstance();
+        X509Credential credential = credentialCache.getCredential(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        KeyStore keyStore = keyStoreHolder.getKeyStore();
+        Certificate otherCertificate = keyStore.getCertificate(OTHER_CERTIFICATE_ALIAS);
+
+        rewriteSigningCertificate(otherCertificate);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(RELOAD_TIMEOUT);
+        X509Credential reloadedCredential = credential;
+        while (!otherCertificate.equals(reloadedCredential.getEntityCertificate()) && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+            reloadedCredential = credentialCache.getCredential(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        }
+
+        assertEquals(reloadedCredential.getEntityCertificate(), otherCertificate,
+                "Signing credential was not reloaded after the keystore file changed.");
+        assertTrue(keyStoreHolder.getKeyStore() != keyStore, "Changed keystore was not swapped in.");
+        assertSame(credentialCache.getCredential(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME), reloadedCredential,
+                "Reloaded signing credential was not cached.");
+    }
+
+    /**
+     * Replace the certificate of the signing key, writing the keystore next to the watched file and moving it in
+     * place, so that the watcher never reads a partially written keystore.
+     */
+    private void rewriteSigningCertificate(Certificate certificate) throws Exception {
+
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream inputStream = new FileInputStream(keyStorePath.toFile())) {
+            keyStore.load(inputStream, TestConstants.KEY_STORE_PASSWORD.toCharArray());
+        }
+        Key key = keyStore.getKey(TestConstants.KEY_ALIAS, TestConstants.KEY_PASSWORD.toCharArray());
+        keyStore.setKeyEntry(TestConstants.KEY_ALIAS, key, TestConstants.KEY_PASSWORD.toCharArray(),
+                new Certificate[]{certificate});
+
+        Path newKeyStorePath = keyStoreDirectory.resolve(KEY_STORE_NAME + ".new");
+        try (OutputStream outputStream = new FileOutputStream(newKeyStorePath.toFile())) {
+            keyStore.store(outputStream, TestConstants.KEY_STORE_PASSWORD.toCharArray());
+        }
+        Files.move(newKeyStorePath, keyStorePath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.manager;
+
+import org.mockito.Mock;
+import org.opensaml.security.x509.X509Credential;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.internal.SAMLSSOAuthenticatorServiceDataHolder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOUtils;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.startsWith;
+
+import static org.powermock.api.mockito.PowerMockito.doNothing;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit tests for X509CredentialCache.
+ */
+@PrepareForTest({KeyStoreManager.class, FrameworkUtils.class})
+public class X509CredentialCacheTest {
+
+    private static final int TENANT_ID = 1;
+    private static final int TENANT_COUNT = 300;
+    private static final int THREAD_COUNT = 8;
+    // Default value of SigningCredentialCacheMaxSize, which is not configured for the tests.
+    private static final int MAX_SIZE = 100;
+
+    @Mock
+    private RealmService realmService;
+
+    @Mock
+    private KeyStoreManager superTenantKeyStoreManager;
+
+    @Mock
+    private KeyStoreManager tenantKeyStoreManager;
+
+    @Mock
+    private TenantManager tenantManager;
+
+    private PrivateKey key;
+
+    private X509Certificate certificate;
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+        SAMLSSOAuthenticatorServiceDataHolder.getInstance().setRealmService(realmService);
+        when(realmService.getTenantManager()).thenReturn(tenantManager);
+        when(tenantManager.getTenantId(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME))
+                .thenReturn(MultitenantConstants.SUPER_TENANT_ID);
+
+        KeyStore keyStore = SSOUtils.loadKeyStoreFromFileSystem(TestUtils.getFilePath("wso2carbon.jks"),
+                TestConstants.KEY_STORE_PASSWORD, "JKS");
+        key = (PrivateKey) keyStore.getKey(TestConstants.KEY_ALIAS, TestConstants.KEY_PASSWORD.toCharArray());
+        certificate = (X509Certificate) keyStore.getCertificate(TestConstants.KEY_ALIAS);
+    }
+
+    @Test
+    public void testGetCredentialFromCache() throws Exception {
+
+        mockSuperTenantKeyStore();
+        X509CredentialCache credentialCache = X509CredentialCache.getInstance();
+        credentialCache.invalidateAll();
+        long hitCount = credentialCache.getHitCount();
+        long missCount = credentialCache.getMissCount();
+
+        X509Credential credential = credentialCache.getCredential(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        X509Credential cachedCredential = credentialCache.getCredential(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+
+        assertSame(cachedCredential, credential, "Signing credential was not served from the cache.");
+        assertEquals(key, credential.getPrivateKey(), "Failed to retrieve private key.");
+        assertEquals(certificate, credential.getEntityCertificate(), "Failed to retrieve the certificate.");
+        assertEquals(credentialCache.getMissCount() - missCount, 1, "Unexpected cache miss count.");
+        assertEquals(credentialCache.getHitCount() - hitCount, 1, "Unexpected cache hit count.");
+    }
+
+    @Test
+    public void testInvalidateCredential() throws Exception {
+
+        mockSuperTenantKeyStore();
+        X509CredentialCache credentialCache = X509CredentialCache.getInstance();
+
+        X509Credential credential = credentialCache.getCredential(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        credentialCache.invalidate(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        X509Credential reloadedCredential = credentialCache.getCredential(
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+
+        assertNotSame(reloadedCredential, credential, "Signing credential was not reloaded after invalidation.");
+        assertEquals(reloadedCredential.getEntityCertificate(), certificate, "Failed to retrieve the certificate.");
+    }
+
+    @Test
+    public void testCacheSizeIsBoundedUnderConcurrentLoads() throws Exception {
+
+        mockSuperTenantKeyStore();
+        KeyStore tenantKeyStore = KeyStore.getInstance("JKS");
+        tenantKeyStore.load(null, null);
+        for (int i = 0; i < TENANT_COUNT; i++) {
+            tenantKeyStore.setCertificateEntry(getTenantDomain(i), certificate);
+        }
+        when(tenantManager.getTenantId(startsWith("tenant"))).thenReturn(TENANT_ID);
+        when(KeyStoreManager.getInstance(TENANT_ID)).thenReturn(tenantKeyStoreManager);
+        when(tenantKeyStoreManager.getPrivateKey(anyString(), anyString())).thenReturn(key);
+        when(tenantKeyStoreManager.getKeyStore(anyString())).thenReturn(tenantKeyStore);
+        X509CredentialCache credentialCache = X509CredentialCache.getInstance();
+        credentialCache.invalidateAll();
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<X509Credential>> credentials = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT * TENANT_COUNT; i++) {
+                String tenantDomain = getTenantDomain(i % TENANT_COUNT);
+                credentials.add(threadPool.submit(() -> credentialCache.getCredential(tenantDomain)));
+            }
+            for (Future<X509Credential> credential : credentials) {
+                assertEquals(credential.get().getEntityCertificate(), certificate,
+                        "Failed to retrieve the certificate.");
+                assertTrue(credentialCache.size() <= MAX_SIZE, "Signing credential cache grew beyond its maximum " +
+                        "size: " + credentialCache.size());
+            }
+        } finally {
+            threadPool.shutdown();
+            credentialCache.invalidateAll();
+        }
+    }
+
+    private static String getTenantDomain(int index) {
+
+        return "tenant" + index + ".com";
+    }
+
+    private void mockSuperTenantKeyStore() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        doNothing().when(FrameworkUtils.class, TestConstants.END_TENANT_FLOW);
+        mockStatic(KeyStoreManager.class);
+        when(KeyStoreManager.getInstance(MultitenantConstants.SUPER_TENANT_ID)).thenReturn(superTenantKeyStoreManager);
+        when(superTenantKeyStoreManager.getDefaultPrivateKey()).thenReturn(key);
+        when(superTenantKeyStoreManager.getDefaultPrimaryCertificate()).thenReturn(certificate);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import net.shibboleth.utilities.java.support.xml.SerializeSupport;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.w3c.dom.Element;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.DefaultSAML2SSOManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * JMH benchmark of the HTTP Redirect binding encoding of an AuthnRequest in
+ * {@code DefaultSAML2SSOManager#encodeRequestMessage}. The previous encoder, which created a Deflater per request and
+ * copied the compressed message several times, is compared with {@link SSOUtils#encodeForRedirect}. Both start from
+ * the marshalled DOM, as the marshalling is the same for both.
+ * <p>
+ * The benchmark is not part of the unit tests. Run it with the main method of this class, from the test classpath,
+ * which reports the latency per request and, through the JMH GC profiler, the allocations per request
+ * (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RedirectEncodingBenchmark {
+
+    private Element authnRequestDOM;
+
+    @Setup
+    public void setUp() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        AuthnRequest authnRequest = (AuthnRequest) SSOUtils.unmarshall(TestConstants.REDIRECT_DECODED_STRING);
+        authnRequestDOM = authnRequest.getDOM();
+    }
+
+    @Benchmark
+    public String encodeWithDeflaterPerRequest() throws IOException {
+
+        Deflater deflater = new Deflater(Deflater.DEFLATED, true);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(byteArrayOutputStream, deflater);
+        SerializeSupport.writeNode(authnRequestDOM, deflaterOutputStream);
+        deflaterOutputStream.close();
+
+        String encodedRequestMessage = new String(Base64.encodeBase64(byteArrayOutputStream.toByteArray(), false));
+
+        byteArrayOutputStream.write(byteArrayOutputStream.toByteArray());
+        byteArrayOutputStream.toString();
+
+        return URLEncoder.encode(encodedRequestMessage, "UTF-8").trim();
+    }
+
+    @Benchmark
+    public String encodeWithPooledDeflater() throws SAMLSSOException {
+
+        return SSOUtils.encodeForRedirect(authnRequestDOM);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        new Runner(new OptionsBuilder()
+                .include(RedirectEncodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
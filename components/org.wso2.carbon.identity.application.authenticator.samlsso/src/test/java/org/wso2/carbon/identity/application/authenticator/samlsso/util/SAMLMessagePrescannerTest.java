@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authenticator.samlsso.util;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
+import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests for SAMLMessagePrescanner.
+ */
+public class SAMLMessagePrescannerTest {
+
+    private static final String RESPONSE_START = "<samlp:Response " +
+            "xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" " +
+            "xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"_response\" Version=\"2.0\">";
+    private static final String RESPONSE_END = "</samlp:Response>";
+    private static final String ASSERTION = "<saml:Assertion ID=\"_assertion\" Version=\"2.0\">" +
+            "<saml:Issuer>idp1</saml:Issuer></saml:Assertion>";
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+    }
+
+    @Test
+    public void testPrescan() throws Exception {
+
+        SAMLMessagePrescanner.prescan(new ByteArrayInputStream((RESPONSE_START + ASSERTION + RESPONSE_END).getBytes(
+                StandardCharsets.UTF_8)));
+        SAMLMessagePrescanner.prescan(new ByteArrayInputStream(
+                TestConstants.POST_DECODED_STRING.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @DataProvider(name = "rejectedMessageProvider")
+    public Object[][] getRejectedMessages() {
+
+        char[] padding = new char[6 * 1024 * 1024];
+        Arrays.fill(padding, ' ');
+        StringBuilder deepMessage = new StringBuilder(RESPONSE_START);
+        StringBuilder largeMessage = new StringBuilder(RESPONSE_START);
+        for (int i = 0; i < 100; i++) {
+            deepMessage.append("<a>");
+        }
+        for (int i = 0; i < 100; i++) {
+            deepMessage.append("</a>");
+        }
+        for (int i = 0; i < 60000; i++) {
+            largeMessage.append("<a/>");
+        }
+
+        return new Object[][]{
+                {RESPONSE_START + ASSERTION + RESPONSE_START + ASSERTION + RESPONSE_END + RESPONSE_END,
+                        ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getCode()},
+                {RESPONSE_START + ASSERTION + ASSERTION + RESPONSE_END,
+                        ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND.getCode()},
+                {"<!DOCTYPE samlp:Response>" + RESPONSE_START + RESPONSE_END,
+                        ErrorMessages.INVALID_SCHEMA_FOR_THE_SAML_2_RESPONSE.getCode()},
+                {deepMessage.append(RESPONSE_END).toString(), ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getCode()},
+                {largeMessage.append(RESPONSE_END).toString(), ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getCode()},
+                {RESPONSE_START + new String(padding) + RESPONSE_END,
+                        ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getCode()},
+        };
+    }
+
+    @Test(dataProvider = "rejectedMessageProvider")
+    public void testPrescanRejectsMessage(String samlMessage, String errorCode) {
+
+        try {
+            SAMLMessagePrescanner.prescan(new ByteArrayInputStream(samlMessage.getBytes(StandardCharsets.UTF_8)));
+            fail("SAML message was not rejected.");
+        } catch (SAMLSSOException e) {
+            assertEquals(e.getErrorCode(), errorCode, "Unexpected error code.");
+        }
+    }
+}
@@ -17,20 +17,66 @@
  */
 package org.wso2.carbon.identity.application.authenticator.samlsso.util;
 
+import org.opensaml.core.xml.XMLObject;
+import org.opensaml.saml.saml2.core.AuthnRequest;
+import org.opensaml.saml.saml2.core.NameID;
+import org.opensaml.saml.saml2.core.Response;
+import org.apache.commons.codec.binary.Base64;
 import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
+import org.w3c.dom.Node;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
 import org.wso2.carbon.identity.application.authenticator.samlsso.TestConstants;
+import org.wso2.carbon.identity.application.authenticator.samlsso.TestUtils;
 import org.wso2.carbon.identity.application.authenticator.samlsso.exception.SAMLSSOException;
+import org.wso2.carbon.identity.application.authenticator.samlsso.manager.DefaultSAML2SSOManager;
+import org.wso2.carbon.identity.application.authenticator.samlsso.util.SSOErrorConstants.ErrorMessages;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 /**
  * Unit test cases for SSOUtils
  */
 public class SSOUtilsTest {
 
+    private static final String EXCLUSIVE_C14N = "http://www.w3.org/2001/10/xml-exc-c14n#";
+    private static final String EXCLUSIVE_C14N_WITH_COMMENTS = "http://www.w3.org/2001/10/xml-exc-c14n#WithComments";
+    private static final String COMMENTED_RESPONSE = "<samlp:Response " +
+            "xmlns:samlp=\"urn:oasis:names:tc:SAML:2.0:protocol\" " +
+            "xmlns:saml=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"_response\" Version=\"2.0\" " +
+            "IssueInstant=\"2026-01-01T00:00:00Z\">" +
+            "<saml:Assertion ID=\"_assertion\" Version=\"2.0\" IssueInstant=\"2026-01-01T00:00:00Z\">" +
+            "<saml:Issuer>idp1</saml:Issuer>" +
+            "<ds:Signature xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\"><ds:SignedInfo>" +
+            "<ds:CanonicalizationMethod Algorithm=\"http://www.w3.org/2001/10/xml-exc-c14n#\"/>" +
+            "<ds:SignatureMethod Algorithm=\"http://www.w3.org/2001/04/xmldsig-more#rsa-sha256\"/>" +
+            "<ds:Reference URI=\"#_assertion\"><ds:Transforms>" +
+            "<ds:Transform Algorithm=\"http://www.w3.org/2000/09/xmldsig#enveloped-signature\"/>" +
+            "<ds:Transform Algorithm=\"%s\"/></ds:Transforms>" +
+            "<ds:DigestMethod Algorithm=\"http://www.w3.org/2001/04/xmlenc#sha256\"/>" +
+            "<ds:DigestValue>AA==</ds:DigestValue></ds:Reference></ds:SignedInfo>" +
+            "<ds:SignatureValue>AA==</ds:SignatureValue></ds:Signature>" +
+            "<saml:Subject><saml:NameID>user<!--comment-->@example.com</saml:NameID></saml:Subject>" +
+            "</saml:Assertion></samlp:Response>";
+
+    @BeforeClass
+    public void initTest() throws Exception {
+
+        FileBasedConfigurationBuilder.getInstance(TestUtils.getFilePath("application-authentication.xml"));
+    }
+
     @Test
     public void testCreateID() {
 
@@ -44,6 +90,22 @@ public class SSOUtilsTest {
                 "encode the xml");
     }
 
+    @Test
+    public void testEncodeForRedirect() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        AuthnRequest authnRequest = (AuthnRequest) SSOUtils.unmarshall(TestConstants.REDIRECT_DECODED_STRING);
+        String encodedRequest = SSOUtils.encodeForRedirect(authnRequest.getDOM());
+
+        Assert.assertTrue(encodedRequest.matches("[A-Za-z0-9%]+"), "Encoded message is not URL encoded");
+        AuthnRequest decodedRequest = (AuthnRequest) SSOUtils.unmarshallInboundMessage(
+                URLDecoder.decode(encodedRequest, StandardCharsets.UTF_8.name()), false);
+        Assert.assertEquals(decodedRequest.getID(), authnRequest.getID(),
+                "Failed to encode the redirect binding message");
+        Assert.assertEquals(SSOUtils.encodeForRedirect(authnRequest.getDOM()), encodedRequest,
+                "Encoding with a pooled Deflater gives a different message");
+    }
+
     @Test
     public void testDecode() throws SAMLSSOException {
 
@@ -51,11 +113,16 @@ public class SSOUtilsTest {
                 "Failed to decode the redirect binding message");
     }
 
-    @Test(expectedExceptions = RuntimeException.class)
-    public void testDecodeEmptyRequest() throws SAMLSSOException {
+    @Test
+    public void testDecodeEmptyRequest() {
 
         String emptyRedirectRequest = "";
-        SSOUtils.decode(emptyRedirectRequest);
+        try {
+            SSOUtils.decode(emptyRedirectRequest);
+            Assert.fail("Truncated request was not rejected.");
+        } catch (SAMLSSOException e) {
+            Assert.assertEquals(e.getErrorCode(), ErrorMessages.IO_ERROR.getCode(), "Unexpected error code.");
+        }
     }
 
     @Test(expectedExceptions = {SAMLSSOException.class})
@@ -64,6 +131,58 @@ public class SSOUtilsTest {
         SSOUtils.decode(TestConstants.INVALID_REDIRECT_REQUEST);
     }
 
+    @Test
+    public void testDecodeLargeRequest() throws Exception {
+
+        char[] padding = new char[20000];
+        Arrays.fill(padding, ' ');
+        String largeRequest = TestConstants.REDIRECT_DECODED_STRING + new String(padding);
+
+        Assert.assertEquals(SSOUtils.decode(deflate(largeRequest, true)), largeRequest,
+                "Failed to decode a redirect binding message larger than 5000 bytes");
+        Assert.assertEquals(SSOUtils.decode(deflate(largeRequest, false)), largeRequest,
+                "Failed to decode a zlib wrapped redirect binding message");
+    }
+
+    @Test
+    public void testDecodeRejectsInflationBomb() throws Exception {
+
+        char[] padding = new char[6 * 1024 * 1024];
+        Arrays.fill(padding, ' ');
+        String inflationBomb = deflate(new String(padding), true);
+        try {
+            SSOUtils.decode(inflationBomb);
+            Assert.fail("Inflation bomb was not rejected.");
+        } catch (SAMLSSOException e) {
+            Assert.assertEquals(e.getErrorCode(), ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getCode(),
+                    "Unexpected error code.");
+        }
+        try {
+            SSOUtils.unmarshallInboundMessage(inflationBomb, false);
+            Assert.fail("Inflation bomb was not rejected while unmarshalling.");
+        } catch (SAMLSSOException e) {
+            Assert.assertEquals(e.getErrorCode(), ErrorMessages.SAML_MESSAGE_LIMIT_EXCEEDED.getCode(),
+                    "Unexpected error code.");
+        }
+    }
+
+    @Test
+    public void testMarshall() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        AuthnRequest authnRequest = (AuthnRequest) SSOUtils.unmarshall(TestConstants.REDIRECT_DECODED_STRING);
+        String marshalledRequest = SSOUtils.marshall(authnRequest);
+        StringWriter writer = new StringWriter();
+        SSOUtils.marshall(authnRequest, writer);
+
+        Assert.assertEquals(((AuthnRequest) SSOUtils.unmarshall(marshalledRequest)).getID(), authnRequest.getID(),
+                "Failed to marshall the SAML message");
+        Assert.assertEquals(((AuthnRequest) SSOUtils.unmarshall(writer.toString())).getID(), authnRequest.getID(),
+                "Failed to marshall the SAML message into a writer");
+        Assert.assertEquals(SSOUtils.marshall(authnRequest), marshalledRequest,
+                "Marshalling with a pooled serializer gives a different message");
+    }
+
     @Test
     public void testDecodeForPost() throws SAMLSSOException {
 
@@ -71,6 +190,42 @@ public class SSOUtilsTest {
                 "Failed to decode post binding message");
     }
 
+    @Test
+    public void testUnmarshallInboundMessage() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        XMLObject postMessage = SSOUtils.unmarshallInboundMessage(TestConstants.POST_REQUEST, true);
+        XMLObject redirectMessage = SSOUtils.unmarshallInboundMessage(TestConstants.REDIRECT_REQUEST, false);
+
+        Assert.assertTrue(postMessage instanceof AuthnRequest, "Failed to unmarshall the post binding message");
+        Assert.assertEquals(((AuthnRequest) postMessage).getID(),
+                ((AuthnRequest) SSOUtils.unmarshall(TestConstants.POST_DECODED_STRING.getBytes(
+                        StandardCharsets.UTF_8))).getID(), "Failed to unmarshall the post binding message");
+        Assert.assertTrue(redirectMessage instanceof AuthnRequest,
+                "Failed to unmarshall the redirect binding message");
+        Assert.assertEquals(((AuthnRequest) redirectMessage).getID(),
+                ((AuthnRequest) SSOUtils.unmarshall(TestConstants.REDIRECT_DECODED_STRING)).getID(),
+                "Unmarshalled redirect binding message differs from the decoded message");
+    }
+
+    @Test
+    public void testUnmarshallInboundMessageRejectsWrappedAssertions() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        String assertion = "<saml:Assertion ID=\"_assertion\" Version=\"2.0\" " +
+                "IssueInstant=\"2026-01-01T00:00:00Z\"><saml:Issuer>idp1</saml:Issuer></saml:Assertion>";
+        String wrappedResponse = String.format(COMMENTED_RESPONSE, EXCLUSIVE_C14N).replace("</samlp:Response>",
+                assertion + "</samlp:Response>");
+        try {
+            SSOUtils.unmarshallInboundMessage(Base64.encodeBase64String(wrappedResponse.getBytes(
+                    StandardCharsets.UTF_8)), true);
+            Assert.fail("Response with several assertions was not rejected.");
+        } catch (SAMLSSOException e) {
+            Assert.assertEquals(e.getErrorCode(), ErrorMessages.PROCESSING_SAML2_MULTIPLE_ASSERTION_ELEMENT_FOUND
+                    .getCode(), "Unexpected error code.");
+        }
+    }
+
     @Test
     public void testIsAuthnRequestSigned() {
 
@@ -267,4 +422,46 @@ public class SSOUtilsTest {
                 "Signature query param");
         Assert.assertEquals(queryParams.get("empty"), "", "Failed to extract the empty query param");
     }
+
+    @Test
+    public void testUnmarshallRemovesComments() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        Response response = (Response) SSOUtils.unmarshall(String.format(COMMENTED_RESPONSE, EXCLUSIVE_C14N));
+        NameID nameID = response.getAssertions().get(0).getSubject().getNameID();
+
+        Assert.assertFalse(hasComment(nameID.getDOM()), "Comments were not removed from the SAML response.");
+        Assert.assertEquals(nameID.getValue(), "user@example.com", "Failed to unmarshall the NameID.");
+    }
+
+    @Test
+    public void testUnmarshallKeepsCommentsOfAssertionSignedWithComments() throws Exception {
+
+        DefaultSAML2SSOManager.doBootstrap();
+        Response response = (Response) SSOUtils.unmarshall(new ByteArrayInputStream(
+                String.format(COMMENTED_RESPONSE, EXCLUSIVE_C14N_WITH_COMMENTS).getBytes()));
+        NameID nameID = response.getAssertions().get(0).getSubject().getNameID();
+
+        Assert.assertTrue(hasComment(nameID.getDOM()), "Comments of an assertion signed with comments were removed.");
+    }
+
+    private static boolean hasComment(Node node) {
+
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.COMMENT_NODE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String deflate(String message, boolean nowrap) throws IOException {
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream,
+                new Deflater(Deflater.DEFLATED, nowrap))) {
+            deflaterOutputStream.write(message.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.encodeBase64String(outputStream.toByteArray());
+    }
 }